@@ -4,7 +4,6 @@
  */
 package flexgridsim;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -24,8 +23,9 @@ public class ControlPlane implements ControlPlaneForRSA {
     private VirtualTopology vt;
     private Map<Flow, LightPath> mappedFlows; // Flows that have been accepted into the network
     private Map<Long, Flow> activeFlows; // Flows that have been accepted or that are waiting for a decision 
-    private Tracer tr = Tracer.getTracerObject();
-    private MyStatistics st = MyStatistics.getMyStatisticsObject();
+    private GroomingIndex grooming; // Live lightpaths by (source, destination) and residual capacity
+    private Tracer tr;
+    private MyStatistics st;
 
 	/**
 	 * Creates a new ControlPlane object.
@@ -38,17 +38,33 @@ public class ControlPlane implements ControlPlaneForRSA {
 	 * @param traffic the traffic
 	 */
     public ControlPlane(Element xml, EventScheduler eventScheduler, String rsaModule, PhysicalTopology pt, VirtualTopology vt, TrafficGenerator traffic) {
+        this(xml, new SimulationContext(pt, eventScheduler, traffic, MyStatistics.getMyStatisticsObject(),
+                Tracer.getTracerObject()), rsaModule, vt);
+    }
+    
+	/**
+	 * Creates a new ControlPlane object for a simulation run.
+	 *
+	 * @param xml the xml
+	 * @param context the simulation run, with its topology, statistics and tracer
+	 * @param rsaModule the name of the RWA class
+	 * @param vt the network's virtual topology
+	 */
+    public ControlPlane(Element xml, SimulationContext context, String rsaModule, VirtualTopology vt) {
         @SuppressWarnings("rawtypes")
 		Class RSAClass;
         mappedFlows = new HashMap<Flow, LightPath>();
         activeFlows = new HashMap<Long, Flow>();
-        this.pt = pt;
+        this.pt = context.getPhysicalTopology();
         this.vt = vt;
+        grooming = new GroomingIndex(pt.getNumNodes());
+        this.tr = context.getTracer();
+        this.st = context.getStatistics();
 
         try {
             RSAClass = Class.forName(rsaModule);
             rsa = (RSA) RSAClass.newInstance();
-            rsa.simulationInterface(xml, pt, vt, this, traffic);
+            rsa.simulationInterface(xml, pt, vt, this, context.getTraffic(), context);
         } catch (Throwable t) {
             t.printStackTrace();
         }
@@ -104,6 +120,7 @@ public class ControlPlane implements ControlPlaneForRSA {
             } 
             addFlowToPT(flow, lightpath);
             mappedFlows.put(flow, lightpath);
+            grooming.addLightpath(flow, lightpath, getCapacity(lightpath));
             tr.acceptFlow(flow, lightpath);
             st.acceptFlow(flow, lightpath);
             flow.setAccepeted(true);
@@ -138,8 +155,8 @@ public class ControlPlane implements ControlPlaneForRSA {
     }
     
     /**
-     * Removes a given Flow object from the Physical Topology and then
-     * puts it back, but with a new route (set of LightPath objects). 
+     * Moves a given Flow object to a new lightpath, whose slots must already
+     * be reserved, and removes its old lightpath from the Physical Topology.
      * 
      * @param id unique identifier of the Flow object
      * @param lightpath list of LightPath objects, which form a Path
@@ -159,13 +176,16 @@ public class ControlPlane implements ControlPlaneForRSA {
                 return false;
             }
             oldPath = mappedFlows.get(flow);
-            removeFlowFromPT(flow, lightpath);
             if (!canAddFlowToPT(flow, lightpath)) {
-                addFlowToPT(flow, oldPath);
                 return false;
             }
+            // A groomed lightpath stays until its last flow leaves it
+            if (grooming.removeFlow(flow)) {
+                removeFlowFromPT(flow, oldPath);
+            }
             addFlowToPT(flow, lightpath);
             mappedFlows.put(flow, lightpath);
+            grooming.addLightpath(flow, lightpath, getCapacity(lightpath));
             //tr.flowRequest(id, true);
             return true;
         }
@@ -196,7 +216,10 @@ public class ControlPlane implements ControlPlaneForRSA {
             flow = activeFlows.get(id);
             if (mappedFlows.containsKey(flow)) {
                 lightpaths = mappedFlows.get(flow);
-                removeFlowFromPT(flow, lightpaths);
+                // A groomed lightpath stays until its last flow departs
+                if (grooming.removeFlow(flow)) {
+                    removeFlowFromPT(flow, lightpaths);
+                }
                 mappedFlows.remove(flow);
             }
             activeFlows.remove(id);
@@ -212,36 +235,21 @@ public class ControlPlane implements ControlPlaneForRSA {
      * @param lightpaths a list of LighPath objects
      */
     private void removeFlowFromPT(Flow flow, LightPath lightpath) {
-        int[] links;
-        links = lightpath.getLinks();
-        for (int j = 0; j < links.length; j++) {
-            pt.getLink(links[j]).releaseSlots(lightpath.getSlotList());
-            pt.getLink(links[j]).updateNoise(lightpath.getSlotList(), flow.getModulationLevel());
-        }
+        // Releasing the slots also clears their in-band crosstalk
         vt.removeLightPath(lightpath.getID());
     }
     
     /**
      * Says whether or not a given Flow object can be added to a 
-     * determined Physical Topology, based on the amount of bandwidth the
-     * flow requires opposed to the available bandwidth.
+     * determined Physical Topology, i.e., whether the slots of its
+     * lightpath are reserved in every link of the path.
      * 
      * @param flow the Flow object to be added 
      * @param lightpaths list of LightPath objects the flow uses
      * @return true if Flow object can be added to the PT, or false if it can't
      */
     private boolean canAddFlowToPT(Flow flow, LightPath lightpath) {
-        int[] links;
-        // Test the availability of resources
-        
-        links = lightpath.getLinks();
-        for (int j = 0; j < links.length; j++) {
-            if (pt.getLink(links[j]).areSlotsAvailable(lightpath.getSlotList(), flow.getModulationLevel())) {
-                return false;
-            }
-        }
-        
-        return true;
+        return pt.isPathReserved(lightpath.getLinks(), lightpath.getSlotList());
     }
     
     /**
@@ -254,12 +262,10 @@ public class ControlPlane implements ControlPlaneForRSA {
      */
     private void addFlowToPT(Flow flow, LightPath lightpath) {
         int[] links = lightpath.getLinks();
-        // Implements it
+        // The slots were reserved when the lightpath was created
         for (int j = 0; j < links.length; j++) {
-            pt.getLink(links[j]).reserveSlots(lightpath.getSlotList());
             pt.getLink(links[j]).updateNoise(lightpath.getSlotList(), flow.getModulationLevel());
         }
-        
     }
     
     /**
@@ -284,51 +290,50 @@ public class ControlPlane implements ControlPlaneForRSA {
         return mappedFlows;
     }
     
-    public boolean canGroom(Flow flow){
-    	for (Map.Entry<Flow, LightPath> entry : mappedFlows.entrySet()){
-    		LightPath lp = entry.getValue();
-    		if (flow.getSource()==lp.getSource() && flow.getDestination() == lp.getDestination()){
-    			int demandInSlots = (int) Math.ceil(flow.getRate() / (double) Modulations.getBandwidth(lp.getModulationLevel()));
-    			int slotCount = lp.getSlotList().get(lp.getSlotList().size()-1).s;
-    			ArrayList<Slot> slotList = new ArrayList<Slot>();
-    			for (int i = slotCount; i < slotCount+demandInSlots; i++) {
-    				Slot p = new Slot(0,i);
-    				slotList.add(p);
-				}
-    			boolean contiguity = true;
-    			for (int j = 0; j < lp.getLinks().length; j++) {
-    				if (pt.getLink(lp.getLink(j)).areSlotsAvailable(slotList, flow.getModulationLevel())){
-    					contiguity = false;
-    					break;
-    				}
-				}
-    			if (contiguity == true){
-    				for (int linkID : lp.getLinks()) {
-    		            pt.getLink(linkID).reserveSlots(lp.getSlotList());
-    		        }
-    				flow.setSlotList(slotList);
-    				st.groomedFlow(flow);
-    				return true;
-    			}
-    		}
-    	    
-    	}
-    	return false;
-    }
-    
     /**
-     * Groom flow.
-     * @param flow 
+     * Grooms a flow into the live lightpath between its source and
+     * destination with the smallest residual capacity that fits its rate.
+     * No spectrum is reserved; the flow shares the slots of the lightpath.
      *
-     * @param lp the lp
-     * @param demandInSlots 
+     * @param flow the Flow object to be groomed
+     * @return true if the flow was groomed, or false if no lightpath fits it
      */
-    public void groomFlow(Flow flow, LightPath lp){
-		for (int linkID : lp.getLinks()) {
-            pt.getLink(linkID).reserveSlots(lp.getSlotList());
+    public boolean canGroom(Flow flow) {
+        LightPath lp = grooming.findLightpath(flow.getSource(), flow.getDestination(), flow.getRate());
+        if (lp == null) {
+            return false;
         }
-		st.groomedFlow(flow);
+        groomFlow(flow, lp);
+        return true;
+    }
+
+    /**
+     * Grooms a flow into a live lightpath, taking its rate from the residual
+     * capacity of the lightpath.
+     *
+     * @param flow the Flow object to be groomed
+     * @param lp a lightpath accepted by this control plane, whose residual
+     *            capacity must fit the rate of the flow
+     * @throws IllegalArgumentException if the lightpath is not live or
+     *             cannot take the rate of the flow
+     */
+    public void groomFlow(Flow flow, LightPath lp) {
+        grooming.groom(flow, lp);
+        flow.setLinks(lp.getLinks());
+        flow.setSlotList(lp.getSlotList());
+        flow.setGroomed(true);
+        mappedFlows.put(flow, lp);
+        st.groomedFlow(flow);
+    }
+
+    /**
+     * Gets the bandwidth a lightpath can carry with its slots and modulation.
+     *
+     * @param lp the lightpath
+     * @return the capacity of the lightpath
+     */
+    private double getCapacity(LightPath lp) {
+        return lp.getSlotList().size() * Modulations.getBandwidth(lp.getModulationLevel());
     }
- 
 
 }
@@ -0,0 +1,167 @@
+package flexgridsim;
+
+/**
+ * The cores of a multicore fiber that are coupled to each other, i.e., whose
+ * signals cause crosstalk on one another. Each core has the list of its
+ * coupled cores and a mask with one bit for each of them, so the coupled cores
+ * in use at a slot are counted with a single bitCount() over the mask of the
+ * cores reserved at that slot.
+ *
+ * A CoreCoupling never changes after it is created, so every link of the same
+ * kind of fiber shares the same one: ring() and pairs() build one coupling for
+ * each number of cores and give it to every link that asks for it. Fibers have
+ * at most 64 cores.
+ *
+ * @author pedrom
+ */
+public class CoreCoupling {
+
+	private static final CoreCoupling[] RINGS = new CoreCoupling[65];
+	private static final CoreCoupling[] PAIRS = new CoreCoupling[65];
+
+	private int cores;
+	private int[][] neighbours;
+	private long[] masks;
+
+	/**
+	 * Creates a new CoreCoupling from a list of pairs of coupled cores.
+	 *
+	 * @param cores
+	 *            number of cores of the fiber
+	 * @param pairs
+	 *            pairs of coupled cores; repeated pairs are ignored
+	 */
+	public CoreCoupling(int cores, int[][] pairs) {
+		checkCores(cores);
+		this.cores = cores;
+		this.masks = new long[cores];
+		for (int[] pair : pairs) {
+			if (pair[0] < 0 || pair[1] < 0 || pair[0] >= cores || pair[1] >= cores || pair[0] == pair[1]) {
+				throw (new IllegalArgumentException());
+			}
+			masks[pair[0]] |= 1L << pair[1];
+			masks[pair[1]] |= 1L << pair[0];
+		}
+		this.neighbours = new int[cores][];
+		for (int i = 0; i < cores; i++) {
+			neighbours[i] = new int[Long.bitCount(masks[i])];
+			long mask = masks[i];
+			for (int n = 0; mask != 0; n++) {
+				neighbours[i][n] = Long.numberOfTrailingZeros(mask);
+				mask &= mask - 1;
+			}
+		}
+	}
+
+	/**
+	 * Gets the coupling of a fiber whose cores form a ring, each one coupled
+	 * to the previous and the next.
+	 *
+	 * @param cores
+	 *            number of cores of the fiber
+	 * @return the shared coupling of the cores
+	 */
+	public static synchronized CoreCoupling ring(int cores) {
+		checkCores(cores);
+		if (RINGS[cores] == null) {
+			int[][] pairs = new int[cores > 1 ? cores : 0][];
+			for (int i = 0; i < pairs.length; i++) {
+				pairs[i] = new int[] { i, (i + 1) % cores };
+			}
+			RINGS[cores] = new CoreCoupling(cores, pairs);
+		}
+		return RINGS[cores];
+	}
+
+	/**
+	 * Gets the coupling of a fiber whose cores are coupled two by two: 0 with
+	 * 1, 2 with 3, and so on. With an odd number of cores the last one is not
+	 * coupled.
+	 *
+	 * @param cores
+	 *            number of cores of the fiber
+	 * @return the shared coupling of the cores
+	 */
+	public static synchronized CoreCoupling pairs(int cores) {
+		checkCores(cores);
+		if (PAIRS[cores] == null) {
+			int[][] pairs = new int[cores / 2][];
+			for (int i = 0; i < pairs.length; i++) {
+				pairs[i] = new int[] { 2 * i, 2 * i + 1 };
+			}
+			PAIRS[cores] = new CoreCoupling(cores, pairs);
+		}
+		return PAIRS[cores];
+	}
+
+	/**
+	 * Checks that a fiber may have a number of cores.
+	 *
+	 * @param cores
+	 *            number of cores of the fiber
+	 */
+	static void checkCores(int cores) {
+		if (cores < 1 || cores > 64) {
+			throw (new IllegalArgumentException());
+		}
+	}
+
+	/**
+	 * Gets the number of cores of the fiber.
+	 *
+	 * @return the number of cores
+	 */
+	public int getCores() {
+		return cores;
+	}
+
+	/**
+	 * Gets the cores coupled to a core, in increasing order. The array is
+	 * shared and must not be changed.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @return the indexes of the coupled cores
+	 */
+	public int[] getNeighbours(int core) {
+		return neighbours[core];
+	}
+
+	/**
+	 * Gets the cores coupled to a core as a mask, with bit k set if core k is
+	 * coupled to it.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @return the mask of the coupled cores
+	 */
+	public long getMask(int core) {
+		return masks[core];
+	}
+
+	/**
+	 * Says whether or not two cores are coupled.
+	 *
+	 * @param core1
+	 *            index of a core
+	 * @param core2
+	 *            index of the other core
+	 * @return true if the cores are coupled
+	 */
+	public boolean areCoupled(int core1, int core2) {
+		return (masks[core1] & (1L << core2)) != 0;
+	}
+
+	/**
+	 * Counts the cores coupled to a core that are in a set of cores.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param coresInUse
+	 *            mask of the cores in use, with bit k set if core k is in use
+	 * @return the number of coupled cores in use
+	 */
+	public int countInUse(int core, long coresInUse) {
+		return Long.bitCount(masks[core] & coresInUse);
+	}
+}
@@ -4,69 +4,146 @@
  */
 package flexgridsim;
 
-import java.util.Comparator;
-import java.util.PriorityQueue;
-
 /**
  * The simulator's timeline is not defined by time itself, but by
  * events. Therefore, if there are no events, there is nothing to
  * simulate. The EventScheduler takes the given events and sorts
  * them on a queue, based on their "time" attribute. When the simulation
  * begins, the events are pulled out of the queue one by one.
+ *
+ * The queue is a 4-ary heap kept in parallel arrays of times, insertion
+ * sequence numbers and events, so comparisons read primitive arrays only.
+ * Events with the same time leave the queue in the order they were added.
+ * The time of an event is read when it is added; changing it afterwards does
+ * not move the event in the queue.
  */
 public class EventScheduler {
 
-    private PriorityQueue<Event> eventQueue;
-    
-    /**
-     * This class allows sorting within the EventScheduler.
-     * It is the core of the the scheduling process.
-     */
-    private static class EventSort implements Comparator<Event> {
+    private double[] times;
+    private long[] sequence;
+    private Event[] events;
+    private int size;
+    private long nextSequence;
 
-    	/**
-    	 * Compares two events, by their times, to allow the sorting.
-    	 * Returns -1 if the first event is sooner, 1 if it is later
-    	 * and zero if they are equal.
-    	 */
-        public int compare(Event o1, Event o2) {
-            if (o1.getTime() < o2.getTime()) {
-                return -1;
-            }
-            if (o1.getTime() > o2.getTime()) {
-                return 1;
-            }
-            return 0;
-        }
-    }
-    
     /**
-     * Creates a new eventQueue with the initial capacity of 100 elements
-     * and uses a new EventSort as the comparator for sorting. 
+     * Creates a new eventQueue with the initial capacity of 100 elements.
      */
     public EventScheduler() {
-        EventSort eventSort = new EventSort();
-        eventQueue = new PriorityQueue<Event>(100, eventSort);
+        times = new double[100];
+        sequence = new long[100];
+        events = new Event[100];
+        size = 0;
+        nextSequence = 0;
     }
-    
+
     /**
      * Adds a given event to the eventQueue.
-     * 
+     *
      * @param event will be added to the eventQueue
      * @return boolean true if the eventQueue changed after calling this method;
      * 				   false if duplicates are not permitted and the event is
      * 						 already in the queue
      */
     public boolean addEvent(Event event) {
-        return eventQueue.add(event);
+        if (event == null) {
+            throw (new NullPointerException());
+        }
+        if (size == events.length) {
+            grow();
+        }
+        siftUp(size++, event.getTime(), nextSequence++, event);
+        return true;
     }
-    
+
     /**
      * Retrieves and removes the first event from the eventQueue.
-     * 
+     *
      * @return the first event of the queue, or null if it has no events
      */
     public Event popEvent() {
-        return eventQueue.poll();
+        if (size == 0) {
+            return null;
+        }
+        Event first = events[0];
+        size--;
+        if (size > 0) {
+            siftDown(0, times[size], sequence[size], events[size]);
+        }
+        events[size] = null;
+        return first;
+    }
+
+    /**
+     * Retrieves the number of events waiting in the eventQueue.
+     *
+     * @return the number of events
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Says whether an event (time t1, sequence s1) leaves the queue before
+     * another one (time t2, sequence s2).
+     */
+    private static boolean before(double t1, long s1, double t2, long s2) {
+        return t1 < t2 || (t1 == t2 && s1 < s2);
+    }
+
+    private void siftUp(int i, double time, long seq, Event event) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 2;
+            if (!before(time, seq, times[parent], sequence[parent])) {
+                break;
+            }
+            move(parent, i);
+            i = parent;
+        }
+        times[i] = time;
+        sequence[i] = seq;
+        events[i] = event;
+    }
+
+    private void siftDown(int i, double time, long seq, Event event) {
+        while (true) {
+            int child = 4 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            int last = Math.min(child + 4, size);
+            int min = child;
+            for (int c = child + 1; c < last; c++) {
+                if (before(times[c], sequence[c], times[min], sequence[min])) {
+                    min = c;
+                }
+            }
+            if (!before(times[min], sequence[min], time, seq)) {
+                break;
+            }
+            move(min, i);
+            i = min;
+        }
+        times[i] = time;
+        sequence[i] = seq;
+        events[i] = event;
+    }
+
+    private void move(int from, int to) {
+        times[to] = times[from];
+        sequence[to] = sequence[from];
+        events[to] = events[from];
+    }
+
+    private void grow() {
+        int capacity = events.length * 2;
+        double[] newTimes = new double[capacity];
+        long[] newSequence = new long[capacity];
+        Event[] newEvents = new Event[capacity];
+        System.arraycopy(times, 0, newTimes, 0, size);
+        System.arraycopy(sequence, 0, newSequence, 0, size);
+        System.arraycopy(events, 0, newEvents, 0, size);
+        times = newTimes;
+        sequence = newSequence;
+        events = newEvents;
     }
 }
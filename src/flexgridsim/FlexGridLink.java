@@ -2,7 +2,10 @@ package flexgridsim;
 
 import java.util.ArrayList;
 
-import flexgridsim.util.Decibel;
+import flexgridsim.util.FreeBlockIndex;
+import flexgridsim.util.FreeRectangleIndex;
+import flexgridsim.util.SpectrumBitmap;
+import flexgridsim.util.SpectrumView;
 
 /**
  * This class is based on the WDMLink but it's adapted to RSA operations for
@@ -12,17 +15,32 @@ import flexgridsim.util.Decibel;
  */
 public class FlexGridLink {
 
+	/** Noise floor of every slot, -60 dB, in mW */
+	private static final double BASE_NOISE = toLinear(-60);
+
 	private int id;
 	private int src;
 	private int dst;
 	private double delay;
 	private int slots;
-	protected boolean[][] reservedSlots;
+	protected SpectrumBitmap spectrum;
+	private FreeBlockIndex[] freeBlocks;
+	private FreeRectangleIndex freeRectangles;
+	private int usedSlots;
+	private int fragments;
+	private int adjacentInUse;
 	private double weight;
 	private int[] modulationLevel;
 	private int distance;
 	protected int cores;
-	private double[][] noise;
+	private CoreCoupling coupling;
+	private long[] coresInUse;
+	private double interCoreXT;
+	private byte[][] inBandModulation;
+	private int[][] cellsByNoise;
+	private long version;
+	private long[] slotVersion;
+	private ArrayList<AllocableSpectrum> allocableCache;
 
 	/**
 	 * Creates a new Fiberlink object.
@@ -45,7 +63,34 @@ public class FlexGridLink {
 	 *            the distance
 	 */
 	public FlexGridLink(int id, int src, int dst, int cores, double delay, int slots, double weight, int distance) {
-		if (id < 0 || src < 0 || dst < 0 || slots < 1) {
+		this(id, src, dst, cores, delay, slots, weight, distance, CoreCoupling.ring(cores));
+	}
+
+	/**
+	 * Creates a new Fiberlink object whose cores are coupled in a given way.
+	 *
+	 * @param id
+	 *            unique identifier
+	 * @param src
+	 *            source node
+	 * @param dst
+	 *            destination node
+	 * @param cores
+	 *            number of fiber cores
+	 * @param delay
+	 *            propagation delay (miliseconds)
+	 * @param slots
+	 *            number of slots available
+	 * @param weight
+	 *            optional link weight
+	 * @param distance
+	 *            the distance
+	 * @param coupling
+	 *            the coupled cores of the fiber
+	 */
+	protected FlexGridLink(int id, int src, int dst, int cores, double delay, int slots, double weight, int distance,
+			CoreCoupling coupling) {
+		if (id < 0 || src < 0 || dst < 0 || slots < 1 || coupling.getCores() != cores) {
 			throw (new IllegalArgumentException());
 		} else {
 			this.id = id;
@@ -55,41 +100,159 @@ public class FlexGridLink {
 			this.slots = slots;
 			this.weight = weight;
 			this.cores = cores;
-			this.reservedSlots = new boolean[cores][slots];
+			this.spectrum = new SpectrumBitmap(cores, slots);
+			this.freeBlocks = createFreeBlocks();
+			this.fragments = cores;
 			this.modulationLevel = new int[slots];
-			this.noise = new double[cores][slots];
+			this.coupling = coupling;
+			this.coresInUse = new long[slots];
+			this.interCoreXT = toLinear(ModulationsMuticore.interCoreXT(cores));
+			this.inBandModulation = new byte[cores][slots];
+			this.cellsByNoise = new int[cores][ModulationsMuticore.numberOfModulations + 1];
+			this.cellsByNoise[0][0] = cores * slots;
+			this.slotVersion = new long[slots];
+			this.allocableCache = new ArrayList<AllocableSpectrum>();
 			this.distance = distance;
 			for (int i = 0; i < cores; i++) {
 				this.modulationLevel[i] = 0;
 				for (int j = 0; j < slots; j++) {
-					this.reservedSlots[i][j] = false;
-					this.noise[i][j] = -60;
+					this.inBandModulation[i][j] = -1;
 				}
 			}
 		}
 	}
 
 	/**
+	 * Creates a new Fiberlink object with the same attributes and state of
+	 * another one.
+	 *
+	 * @param link
+	 *            the link that will be copied into the new one
+	 */
+	protected FlexGridLink(FlexGridLink link) {
+		this.id = link.id;
+		this.src = link.src;
+		this.dst = link.dst;
+		this.delay = link.delay;
+		this.slots = link.slots;
+		this.weight = link.weight;
+		this.cores = link.cores;
+		this.spectrum = new SpectrumBitmap(link.spectrum);
+		this.freeBlocks = createFreeBlocks();
+		this.usedSlots = link.usedSlots;
+		this.fragments = link.fragments;
+		this.adjacentInUse = link.adjacentInUse;
+		this.modulationLevel = link.modulationLevel.clone();
+		this.coupling = link.coupling;
+		this.coresInUse = link.coresInUse.clone();
+		this.interCoreXT = link.interCoreXT;
+		this.inBandModulation = new byte[cores][];
+		this.cellsByNoise = new int[cores][];
+		this.version = link.version;
+		this.slotVersion = link.slotVersion.clone();
+		this.allocableCache = new ArrayList<AllocableSpectrum>();
+		for (int i = 0; i < cores; i++) {
+			this.inBandModulation[i] = link.inBandModulation[i].clone();
+			this.cellsByNoise[i] = link.cellsByNoise[i].clone();
+		}
+		this.distance = link.distance;
+	}
+
+	private FreeBlockIndex[] createFreeBlocks() {
+		FreeBlockIndex[] index = new FreeBlockIndex[cores];
+		for (int i = 0; i < cores; i++) {
+			index[i] = new FreeBlockIndex(spectrum, i);
+		}
+		return index;
+	}
+
+	/**
+	 * Creates a copy of this link, of the same class, with its own spectrum and
+	 * noise, so a template link can be reused by several simulations.
+	 *
+	 * @return the copy of the link
+	 */
+	public FlexGridLink copy() {
+		return new FlexGridLink(this);
+	}
+
+	/**
+	 * Sets the in-band crosstalk of the reserved slots of a set to the one of
+	 * a modulation. Free slots of the set get no in-band crosstalk. The
+	 * inter-core crosstalk is already kept up to date by reserveSlots() and
+	 * releaseSlots().
+	 * 
 	 * @param slotList
 	 * @param modulation
 	 */
-	public void updateNoise(ArrayList<Slot> slotList, int modulation) {
-		
-		for (Slot s : slotList) {
-			this.noise[s.c][s.s] = -60;
-			for (int i = 0; i <getCoupledFibersInUse(s.c, s.s).size(); i++) {
-				this.noise[s.c][s.s] = Decibel.add(this.noise[s.c][s.s],ModulationsMuticore.interCoreXT(modulation));
-			}
-			this.noise[s.c][s.s] = Decibel.add(this.noise[s.c][s.s],ModulationsMuticore.inBandXT[modulation]);
+	public void updateNoise(SlotSet slotList, int modulation) {
+		for (int k = 0; k < slotList.size(); k++) {
+			int c = slotList.getCore(k);
+			int s = slotList.getSlot(k);
+			setInBandModulation(c, s, spectrum.isReserved(c, s) ? modulation : -1);
 		}
 	}
 
 	/**
 	 * @param slot
-	 * @return crosstalk in the slot
+	 * @return crosstalk in the slot, in dB
 	 */
 	public double getNoise(Slot slot) {
-		return noise[slot.c][slot.s];
+		return getNoise(slot.c, slot.s);
+	}
+
+	/**
+	 * @param core
+	 *            index of the core
+	 * @param slot
+	 *            index of the slot
+	 * @return crosstalk in the slot, in dB
+	 */
+	public double getNoise(int core, int slot) {
+		return 10 * Math.log10(linearNoise(getNumCoupledInUse(core, slot), inBandModulation[core][slot]));
+	}
+
+	/**
+	 * Gets the noise of a slot in mW: the noise floor, plus the crosstalk of
+	 * each reserved coupled core, plus the in-band crosstalk of the slot's own
+	 * modulation.
+	 */
+	private double linearNoise(int coupled, int modulation) {
+		double noise = BASE_NOISE + coupled * interCoreXT;
+		if (modulation >= 0) {
+			noise += toLinear(ModulationsMuticore.inBandXT[modulation]);
+		}
+		return noise;
+	}
+
+	private static double toLinear(double dB) {
+		return Math.pow(10, dB / 10);
+	}
+
+	/**
+	 * Changes the modulation of the in-band crosstalk of a slot, keeping the
+	 * number of slots of each noise level.
+	 */
+	private void setInBandModulation(int core, int slot, int modulation) {
+		if (inBandModulation[core][slot] == modulation) {
+			return;
+		}
+		int coupled = getNumCoupledInUse(core, slot);
+		cellsByNoise[coupled][inBandModulation[core][slot] + 1]--;
+		inBandModulation[core][slot] = (byte) modulation;
+		cellsByNoise[coupled][modulation + 1]++;
+		slotVersion[slot] = ++version;
+	}
+
+	/**
+	 * Gets the version of the link, a number that grows every time a slot is
+	 * reserved or released or the crosstalk of a slot changes. Two calls that
+	 * return the same version saw the same spectrum and noise.
+	 * 
+	 * @return the version of the link
+	 */
+	public long getVersion() {
+		return version;
 	}
 
 	/**
@@ -104,16 +267,50 @@ public class FlexGridLink {
 		boolean[][] freeSlots = new boolean[cores][slots];
 		for (int i = 0; i < freeSlots.length; i++) {
 			for (int j = 0; j < freeSlots[i].length; j++) {
-				if (!reservedSlots[i][j]) {
-					freeSlots[i][j] = true;
-				} else {
-					freeSlots[i][j] = false;
-				}
+				freeSlots[i][j] = spectrum.isFree(i, j);
 			}
 		}
 		return freeSlots;
 	}
 
+	/**
+	 * Gets the index of the blocks of contiguous free slots of a core, for
+	 * first-fit, last-fit and best-fit queries. The index follows every
+	 * reservation and release made through reserveSlots() and releaseSlots().
+	 * 
+	 * @param core
+	 *            index of the core
+	 * @return the free block index of the core
+	 */
+	public FreeBlockIndex getFreeBlockIndex(int core) {
+		return freeBlocks[core];
+	}
+
+	/**
+	 * Gets the index of the maximal rectangles of free cores and slots, for
+	 * allocations that take several cores at once. The index is built on the
+	 * first call and from then on follows every reservation and release made
+	 * through reserveSlots() and releaseSlots().
+	 * 
+	 * @return the free rectangle index of the link
+	 */
+	public FreeRectangleIndex getFreeRectangleIndex() {
+		if (freeRectangles == null) {
+			freeRectangles = new FreeRectangleIndex(spectrum);
+		}
+		return freeRectangles;
+	}
+
+	/**
+	 * Gets a read-only view of the spectrum of the link. Unlike getSpectrum(),
+	 * the view is not a copy, so it reflects any later reservation or release.
+	 * 
+	 * @return the spectrum view
+	 */
+	public SpectrumView getSpectrumView() {
+		return spectrum;
+	}
+
 	/**
 	 * Gets the number of free slots in the link.
 	 * 
@@ -125,21 +322,65 @@ public class FlexGridLink {
 	 * @return the free slots for this modulation
 	 */
 	public boolean[][] getAllocableSpectrum(int modulation, double power) {
+		SpectrumView allocable = getAllocableSpectrumView(modulation, power);
 		boolean[][] freeSlots = new boolean[cores][slots];
 		for (int i = 0; i < freeSlots.length; i++) {
 			for (int j = 0; j < freeSlots[i].length; j++) {
-				double SNR = Decibel.subtract(power, noise[i][j]);
-				if (!reservedSlots[i][j] && 
-						SNR >= ModulationsMuticore.getSNRThreshold(modulation)// check if allocation is possible
+				freeSlots[i][j] = allocable.isFree(i, j);
+			}
+		}
+		return freeSlots;
+	}
+
+	/**
+	 * Gets the slots where a lightpath with a modulation and power could be
+	 * allocated: the free slots with enough SNR whose crosstalk would not
+	 * disrupt the coupled slots in use. Those slots are the free ones of the
+	 * returned view.
+	 * 
+	 * The view is cached for each modulation and power. When the link changes,
+	 * only the slots whose state or crosstalk changed since the last call are
+	 * computed again. The view belongs to the link and is updated by the next
+	 * call with the same modulation and power, so it must be read before
+	 * that.
+	 * 
+	 * @param modulation
+	 *            modulation level
+	 * @param power
+	 *            power of transmission
+	 * @return the allocable slots for this modulation
+	 */
+	public SpectrumView getAllocableSpectrumView(int modulation, double power) {
+		AllocableSpectrum cached = null;
+		for (AllocableSpectrum entry : allocableCache) {
+			if (entry.modulation == modulation && entry.power == power) {
+				cached = entry;
+				break;
+			}
+		}
+		if (cached == null) {
+			cached = new AllocableSpectrum(modulation, power, new SpectrumBitmap(cores, slots));
+			allocableCache.add(cached);
+		} else if (cached.version == version) {
+			return cached.blocked;
+		}
+		double maxNoise = toLinear(power) - toLinear(ModulationsMuticore.getSNRThreshold(modulation));
+		for (int j = 0; j < slots; j++) {
+			if (slotVersion[j] <= cached.version) {
+				continue;
+			}
+			for (int i = 0; i < cores; i++) {
+				if (spectrum.isFree(i, j) && 
+						linearNoise(getNumCoupledInUse(i, j), inBandModulation[i][j]) <= maxNoise // check if allocation is possible
 						&& !allocationAffectsCoupledFibers(i, j, modulation, power)) { // check if allocation will  disrupt other connections
-					freeSlots[i][j] = true;
+					cached.blocked.release(i, j);
 				} else {
-					freeSlots[i][j] = false;
+					cached.blocked.reserve(i, j);
 				}
 			}
 		}
-		// printSpectrum();
-		return freeSlots;
+		cached.version = version;
+		return cached.blocked;
 	}
 
 	/**
@@ -152,15 +393,39 @@ public class FlexGridLink {
 	 * @return true if the allocation affects neighbors; false otherwise
 	 */
 	public boolean allocationAffectsCoupledFibers(int i, int j, int modulation, double power) {
-		for (Slot s : getCoupledFibersInUse(i, j)) {
-			double totalNoise = Decibel.add(noise[s.c][s.s], ModulationsMuticore.interCoreXT(cores));
-			if (Decibel.subtract(power, totalNoise) < ModulationsMuticore.getSNRThreshold(modulation)) {
+		double maxNoise = toLinear(power) - toLinear(ModulationsMuticore.getSNRThreshold(modulation));
+		long inUse = coresInUse[j];
+		for (int k : coupling.getNeighbours(i)) {
+			if ((inUse & (1L << k)) != 0
+					&& linearNoise(coupling.countInUse(k, inUse), inBandModulation[k][j]) + interCoreXT > maxNoise) {
 				return true;
 			}
 		}
 		return false;
 	}
 
+	/**
+	 * Gets the cores of the fiber that are coupled to each other.
+	 * 
+	 * @return the coupling of the cores
+	 */
+	public CoreCoupling getCoreCoupling() {
+		return coupling;
+	}
+
+	/**
+	 * Counts the cores coupled to a core that are reserved at a slot.
+	 * 
+	 * @param core
+	 *            index of the core
+	 * @param slot
+	 *            index of the slot
+	 * @return the number of coupled cores in use
+	 */
+	public int getNumCoupledInUse(int core, int slot) {
+		return coupling.countInUse(core, coresInUse[slot]);
+	}
+
 	/**
 	 * @param i
 	 *            index of spectrum (core)
@@ -170,26 +435,9 @@ public class FlexGridLink {
 	 */
 	public ArrayList<Slot> getCoupledFibersInUse(int i, int j) {
 		ArrayList<Slot> coupledFibers = new ArrayList<Slot>();
-		if (i == 0) {
-			if (reservedSlots[this.cores - 1][j]) {
-				coupledFibers.add(new Slot(this.cores - 1, j));
-			}
-			if (reservedSlots[1][j]) {
-				coupledFibers.add(new Slot(1, j));
-			}
-		} else if (i == cores - 1) {
-			if (reservedSlots[0][j]) {
-				coupledFibers.add(new Slot(0, j));
-			}
-			if (reservedSlots[cores - 2][j]) {
-				coupledFibers.add(new Slot(this.cores - 2, j));
-			}
-		} else {
-			if (reservedSlots[i + 1][j]) {
-				coupledFibers.add(new Slot(i + 1, j));
-			}
-			if (reservedSlots[i - 1][j]) {
-				coupledFibers.add(new Slot(i - 1, j));
+		for (int k : coupling.getNeighbours(i)) {
+			if ((coresInUse[j] & (1L << k)) != 0) {
+				coupledFibers.add(new Slot(k, j));
 			}
 		}
 		return coupledFibers;
@@ -203,7 +451,11 @@ public class FlexGridLink {
 	 * @return the free slots
 	 */
 	public boolean[] getSpectrumCore(int core) {
-		return reservedSlots[core];
+		boolean[] reservedSlots = new boolean[slots];
+		for (int j = 0; j < slots; j++) {
+			reservedSlots[j] = spectrum.isReserved(core, j);
+		}
+		return reservedSlots;
 	}
 
 	/**
@@ -271,24 +523,29 @@ public class FlexGridLink {
 	 * 
 	 * @return true if the slots are available
 	 */
-	public Boolean areSlotsAvailable(ArrayList<Slot> slotList, int modulation) {
-		for (int i = 0; i < slotList.size(); i++) {
-			if (slotList.get(i).c < 0)
-				throw (new IllegalArgumentException());
-			else if (slotList.get(i).s >= slots)
-				throw (new IllegalArgumentException());
-			else if (slotList.get(i).c >= cores)
-				throw (new IllegalArgumentException());
-			else if (slotList.get(i).s < 0)
-				throw (new IllegalArgumentException());
+	public Boolean areSlotsAvailable(SlotSet slotList, int modulation) {
+		checkSlots(slotList);
+		for (int i = 0; i < slotList.size(); i = slotList.getRunEnd(i)) {
+			if (!spectrum.isRangeFree(slotList.getCore(i), slotList.getSlot(i), slotList.getRunEnd(i) - i)) {
+				return false;
+			}
+		}
+		return true;
+	}
 
-			else {
-				boolean[][] freeSlots = getSpectrum();
-				for (Slot slot : slotList) {
-					if (!freeSlots[slot.c][slot.s]) {
-						return false;
-					}
-				}
+	/**
+	 * Says whether or not every slot of a set is reserved.
+	 * 
+	 * @param slotList
+	 *            set of slots
+	 * @return true if all the slots are in use
+	 */
+	public boolean areSlotsReserved(SlotSet slotList) {
+		checkSlots(slotList);
+		for (int i = 0; i < slotList.size(); i = slotList.getRunEnd(i)) {
+			int free = spectrum.nextFree(slotList.getCore(i), slotList.getSlot(i));
+			if (free >= 0 && free <= slotList.getSlot(slotList.getRunEnd(i) - 1)) {
+				return false;
 			}
 		}
 		return true;
@@ -300,15 +557,63 @@ public class FlexGridLink {
 	 * @return the num free slots
 	 */
 	public int getNumFreeSlots() {
-		int numFreeSlots = 0;
+		return cores * slots - usedSlots;
+	}
+
+	/**
+	 * Gets the number of reserved slots in the link.
+	 *
+	 * @return the number of used slots
+	 */
+	public int getNumUsedSlots() {
+		return usedSlots;
+	}
+
+	/**
+	 * Gets the number of reserved slots in a core.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @return the number of used slots of the core
+	 */
+	public int getNumUsedSlots(int core) {
+		return slots - freeBlocks[core].getNumberOfFreeSlots();
+	}
+
+	/**
+	 * Gets the number of blocks of contiguous free slots, summed over all
+	 * cores.
+	 *
+	 * @return the number of fragments
+	 */
+	public int getNumFragments() {
+		return fragments;
+	}
+
+	/**
+	 * Gets the length of the largest block of contiguous free slots of any
+	 * core.
+	 *
+	 * @return the number of slots of the largest free block
+	 */
+	public int getLargestFreeBlock() {
+		int largest = 0;
 		for (int i = 0; i < cores; i++) {
-			for (int j = 0; j < slots; j++) {
-				if (reservedSlots[i][j]) {
-					numFreeSlots++;
-				}
-			}
+			largest = Math.max(largest, freeBlocks[i].getLargestFreeBlock());
 		}
-		return numFreeSlots;
+		return largest;
+	}
+
+	/**
+	 * Gets the number of adjacent occupied cores (AOC): for every reserved
+	 * slot, the number of coupled cores that are also reserved in the same
+	 * slot, summed over the link. Each pair of coupled slots in use is counted
+	 * twice, once for each of them.
+	 *
+	 * @return the AOC of the link
+	 */
+	public int getAdjacentCoresInUse() {
+		return adjacentInUse;
 	}
 
 	/**
@@ -321,17 +626,23 @@ public class FlexGridLink {
 	 * 
 	 * @return true if operation was successful, or false otherwise
 	 */
-	public boolean reserveSlots(ArrayList<Slot> slotList) {
+	public boolean reserveSlots(SlotSet slotList) {
 		try {
-			for (int i = 0; i < slotList.size(); i++) {
-				if (slotList.get(i).c < 0 || slotList.get(i).s < 0 || slotList.get(i).c >= cores
-						|| slotList.get(i).s >= slots) {
-					throw (new IllegalArgumentException());
+			checkSlots(slotList);
+			for (int i = 0; i < slotList.size(); i = slotList.getRunEnd(i)) {
+				int c = slotList.getCore(i);
+				int first = slotList.getSlot(i);
+				int last = slotList.getSlot(slotList.getRunEnd(i) - 1);
+				updateCoupledInUse(c, first, last, true);
+				fragments -= freeBlocks[c].getNumberOfFreeBlocks();
+				freeBlocks[c].beforeChange(first, last);
+				spectrum.reserveRange(c, first, last - first + 1);
+				freeBlocks[c].afterChange(first, last);
+				fragments += freeBlocks[c].getNumberOfFreeBlocks();
+				if (freeRectangles != null) {
+					freeRectangles.reserved(c, first, last);
 				}
 			}
-			for (Slot slot : slotList) {
-				reservedSlots[slot.c][slot.s] = true;
-			}
 			return true;
 		} catch (IllegalArgumentException e) {
 			System.out.println("Illegal argument for reserveSlots");
@@ -348,15 +659,69 @@ public class FlexGridLink {
 	 *            list of slots
 	 * 
 	 */
-	public void releaseSlots(ArrayList<Slot> slotList) {
-		for (int i = 0; i < slotList.size(); i++) {
-			if (slotList.get(i).c < 0 || slotList.get(i).s < 0 || slotList.get(i).c >= cores
-					|| slotList.get(i).s >= slots) {
-				throw (new IllegalArgumentException());
+	public void releaseSlots(SlotSet slotList) {
+		checkSlots(slotList);
+		for (int i = 0; i < slotList.size(); i = slotList.getRunEnd(i)) {
+			int c = slotList.getCore(i);
+			int first = slotList.getSlot(i);
+			int last = slotList.getSlot(slotList.getRunEnd(i) - 1);
+			updateCoupledInUse(c, first, last, false);
+			fragments -= freeBlocks[c].getNumberOfFreeBlocks();
+			freeBlocks[c].beforeChange(first, last);
+			spectrum.releaseRange(c, first, last - first + 1);
+			freeBlocks[c].afterChange(first, last);
+			fragments += freeBlocks[c].getNumberOfFreeBlocks();
+			if (freeRectangles != null) {
+				freeRectangles.released(c, first, last);
+			}
+			for (int s = first; s <= last; s++) {
+				setInBandModulation(c, s, -1);
 			}
 		}
-		for (Slot pixel : slotList) {
-			reservedSlots[pixel.c][pixel.s] = false;
+	}
+
+	/**
+	 * Marks a range of slots of a core that is about to be reserved or
+	 * released in the masks of cores in use, moving the slots of the coupled
+	 * cores to their new noise level and updating the counters of used slots
+	 * and adjacent occupied cores. Slots that are already in the new state are
+	 * skipped.
+	 */
+	private void updateCoupledInUse(int core, int first, int last, boolean reserve) {
+		int[] coupled = coupling.getNeighbours(core);
+		long bit = 1L << core;
+		for (int s = first; s <= last; s++) {
+			if (((coresInUse[s] & bit) != 0) == reserve) {
+				continue;
+			}
+			for (int k : coupled) {
+				int before = coupling.countInUse(k, coresInUse[s]);
+				int modulation = inBandModulation[k][s] + 1;
+				cellsByNoise[before][modulation]--;
+				cellsByNoise[reserve ? before + 1 : before - 1][modulation]++;
+			}
+			int adjacent = 2 * coupling.countInUse(core, coresInUse[s]);
+			usedSlots += reserve ? 1 : -1;
+			adjacentInUse += reserve ? adjacent : -adjacent;
+			coresInUse[s] ^= bit;
+			slotVersion[s] = ++version;
+		}
+	}
+
+	/**
+	 * Verifies that every slot of a set exists in the link.
+	 * 
+	 * @param slotList
+	 *            set of slots
+	 * @throws IllegalArgumentException
+	 *             if any slot is out of the link's spectrum
+	 */
+	private void checkSlots(SlotSet slotList) {
+		for (int i = 0; i < slotList.size(); i = slotList.getRunEnd(i)) {
+			int c = slotList.getCore(i);
+			if (c >= cores || slotList.getSlot(slotList.getRunEnd(i) - 1) >= slots) {
+				throw (new IllegalArgumentException());
+			}
 		}
 	}
 
@@ -381,86 +746,44 @@ public class FlexGridLink {
 	 * @return the fragmentation ratio
 	 */
 	public double getFragmentationRatio(TrafficInfo[] trafficCalls, double slotCapacity) {
-		boolean[][] freeSlots = getSpectrum();
-		ArrayList<Double> fragmentsPotential = new ArrayList<Double>();
-		for (int i = 0; i < freeSlots.length - 1; i++) {
-			if (freeSlots[0][i] == true) {
-				i++;
-				int fragmentSize = 1;
-				while (freeSlots[0][i] == true && i < freeSlots.length - 2) {
-					fragmentSize++;
-					i++;
-				}
-				double counter = 0;
-				for (TrafficInfo call : trafficCalls) {
-					if (call.getRate() / slotCapacity >= fragmentSize) {
-						counter++;
-					}
-				}
-				fragmentsPotential.add(counter / trafficCalls.length);
-			}
-		}
+		// A call counts for every fragment that is not larger than its demand
 		double sum = 0;
-		for (Double potential : fragmentsPotential) {
-			sum += potential.doubleValue();
+		for (TrafficInfo call : trafficCalls) {
+			int demand = (int) Math.min(Math.floor(call.getRate() / slotCapacity), slots);
+			for (int i = 0; i < cores; i++) {
+				sum += freeBlocks[i].countBlocksUpTo(demand);
+			}
 		}
-		return sum / fragmentsPotential.size();
+		return sum / trafficCalls.length / fragments;
 	}
 
 	/**
 	 * @return the metric CpS
 	 */
 	public double getCrossTalkPerSlot() {
-		if (cores == 1 || getNumFreeSlots() == slots * cores) {
+		if (cores == 1 || usedSlots == 0) {
 			return -1;
 		}
-		int aoc = 0;
-		boolean[][] freeSlots = getSpectrum();
-		for (int i = 0; i < freeSlots.length; i++) {
-			for (int j = 0; j < freeSlots[i].length; j++) {
-				if (!freeSlots[i][j]) {
-					if (i == 0) {
-						if (!freeSlots[this.cores - 1][j]) {
-							aoc++;
-						}
-						if (!freeSlots[1][j]) {
-							aoc++;
-						}
-					} else if (i == cores - 1) {
-						if (!freeSlots[0][j]) {
-							aoc++;
-						}
-						if (!freeSlots[cores - 2][j]) {
-							aoc++;
-						}
-					} else {
-						if (!freeSlots[i + 1][j]) {
-							aoc++;
-						}
-						if (!freeSlots[i - 1][j]) {
-							aoc++;
-						}
-					}
-				}
-			}
-		}
-		double usedSlots = (slots * cores - getNumFreeSlots());
-		return aoc / usedSlots;
+		return adjacentInUse / (double) usedSlots;
 	}
 
 	/**
-	 * @param noise
+	 * Gets the mean of the crosstalk of every slot, in dB. Slots with the same
+	 * number of reserved coupled cores and the same modulation have the same
+	 * crosstalk, so only the number of slots of each level is summed.
+	 * 
 	 * @return the average crosstalk in the network
 	 */
 	public double averageCrosstalk() {
 		double average = 0;
-		for (int i = 0; i < this.noise.length; i++) {
-			for (int j = 0; j < this.noise[i].length; j++) {
-				average += this.noise[i][j];
+		for (int n = 0; n < cellsByNoise.length; n++) {
+			for (int m = 0; m < cellsByNoise[n].length; m++) {
+				if (cellsByNoise[n][m] > 0) {
+					average += cellsByNoise[n][m] * 10 * Math.log10(linearNoise(n, m - 1));
+				}
 			}
 		}
-		return average / (this.noise.length * noise[0].length);
-
+		return average / (cores * slots);
 	}
 
 	/**
@@ -481,12 +804,11 @@ public class FlexGridLink {
 
 	public void printSpectrum() {
 		System.out.println("----------------------------------------------------");
-		boolean[][] freeSlots = getSpectrum();
-		for (int i = 0; i < freeSlots.length; i++) {
+		for (int i = 0; i < cores; i++) {
 
-			for (int j = 0; j < freeSlots[i].length; j++) {
+			for (int j = 0; j < slots; j++) {
 
-				if (freeSlots[i][j])
+				if (spectrum.isFree(i, j))
 					System.out.print(1 + "");
 				else
 					System.out.print(0 + "");
@@ -495,4 +817,23 @@ public class FlexGridLink {
 		}
 	}
 
+	/**
+	 * The allocable slots of the link for a modulation and power, as they were
+	 * at a version of the link. Slots that are not allocable are reserved in
+	 * the bitmap.
+	 */
+	private static class AllocableSpectrum {
+		private int modulation;
+		private double power;
+		private SpectrumBitmap blocked;
+		private long version;
+
+		private AllocableSpectrum(int modulation, double power, SpectrumBitmap blocked) {
+			this.modulation = modulation;
+			this.power = power;
+			this.blocked = blocked;
+			this.version = -1;
+		}
+	}
+
 }
@@ -1,7 +1,5 @@
 package flexgridsim;
 
-import java.util.ArrayList;
-
 /**
  * @author pedrom
  *
@@ -20,27 +18,19 @@ public class FlexGridLink12MCF extends FlexGridLink{
 	 */
 	public FlexGridLink12MCF(int id, int src, int dst, int cores, double delay, int slots, double weight,
 			int distance) {
-		super(id, src, dst, cores, delay, slots, weight, distance);
-		// TODO Auto-generated constructor stub
+		super(id, src, dst, cores, delay, slots, weight, distance, CoreCoupling.pairs(cores));
 	}
 	
 	/**
-	 * @param i index of spectrum (core)
-	 * @param j index of spectrum (slot)
-	 * @return a list of neighbor slots
+	 * @param link the link that will be copied into the new one
 	 */
-	public ArrayList<Slot> getCoupledFibersInUse(int i, int j){
-		ArrayList<Slot> coupledFibers = new ArrayList<Slot>();
-		if (i%2==0) {
-			if (reservedSlots[i+1][j]){
-				coupledFibers.add(new Slot(i+1, j));
-			}
-		} else {
-			if (reservedSlots[i-1][j]){
-				coupledFibers.add(new Slot(i-1, j));
-			}
-		}
-		return coupledFibers;
+	protected FlexGridLink12MCF(FlexGridLink12MCF link) {
+		super(link);
+	}
+	
+	@Override
+	public FlexGridLink copy() {
+		return new FlexGridLink12MCF(this);
 	}
 
 }
@@ -1,13 +1,18 @@
 package flexgridsim;
 
-import java.util.ArrayList;
-
 /**
  * @author pedrom
  *
  */
 public class FlexGridLink19MCF extends FlexGridLink{
-	private boolean coupling[][];
+	private static final int[][] COUPLED_CORES = {
+		{0,1}, {0,2}, {0,3}, {0,4}, {0,5},
+		{1,7}, {1,2}, {2,3}, {3,4}, {4,5}, {5,6}, {1,18},
+		{2,8}, {2,9}, {3,10}, {3,11}, {4,12}, {4,13}, {5,14}, {5,15}, {6,16}, {6,17},
+		{7,8}, {8,9}, {9,10}, {10,11}, {11,12}, {12,13}, {13,14}, {14,15}, {15,16}, {16,17}, {17,18}
+	};
+	private static final CoreCoupling[] COUPLINGS = new CoreCoupling[65];
+
 	/**
 	 * @param id
 	 * @param src
@@ -21,72 +26,36 @@ public class FlexGridLink19MCF extends FlexGridLink{
 	 */
 	public FlexGridLink19MCF(int id, int src, int dst, int cores, double delay, int slots, double weight,
 			int distance) {
-		super(id, src, dst, cores, delay, slots, weight, distance);
-		coupling = new boolean[cores][cores];
-		for (int i = 0; i < coupling.length; i++) {
-			for (int j = 0; j < coupling[i].length; j++) {
-				coupling[i][j]=false;
-			}
-		}
-		for (int k = 1; k < 6; k++) {
-			coupleCores(0, k);
-		}
-		coupleCores(1,7);
-		coupleCores(1,2);
-		coupleCores(2,3);
-		coupleCores(3,4);
-		coupleCores(4,5);
-		coupleCores(5,6);
-		coupleCores(1,18);
-		coupleCores(1,7);
-		coupleCores(2,8);
-		coupleCores(2,9);
-		
-		coupleCores(3,10);
-		coupleCores(3,11);
-		coupleCores(4,12);
-		coupleCores(4,13);
-		coupleCores(5,14);
-		coupleCores(5,15);
-		coupleCores(6,16);
-		coupleCores(6,17);
-		
-		coupleCores(7,8);
-		coupleCores(8,9);
-		coupleCores(9,10);
-		coupleCores(10,11);
-		coupleCores(11,12);
-		coupleCores(12,13);
-		coupleCores(13,14);
-		coupleCores(14,15);
-		coupleCores(15,16);
-		coupleCores(16,17);
-		coupleCores(17,18);
-		// TODO Auto-generated constructor stub
+		super(id, src, dst, cores, delay, slots, weight, distance, coupling(cores));
 	}
+
 	/**
-	 * @param i index of spectrum (core)
-	 * @param j index of spectrum (slot)
-	 * @return a list of neighbor slots
+	 * Gets the coupling of the cores of a 19-core fiber, built once for each
+	 * number of cores and shared by every link.
+	 *
+	 * @param cores
+	 *            number of cores of the fiber
+	 * @return the shared coupling of the cores
 	 */
-	public ArrayList<Slot> getCoupledFibersInUse(int i, int j){
-		ArrayList<Slot> coupledFibers = new ArrayList<Slot>();
-		for (int k = 0; k < coupling[i].length; k++) {
-			if (coupling[i][k]) {
-				coupledFibers.add(new Slot(i, k));
-			}
+	private static synchronized CoreCoupling coupling(int cores) {
+		CoreCoupling.checkCores(cores);
+		if (COUPLINGS[cores] == null) {
+			COUPLINGS[cores] = new CoreCoupling(cores, COUPLED_CORES);
 		}
-		
-		return coupledFibers;
+		return COUPLINGS[cores];
 	}
 	
 	/**
-	 * @param i
-	 * @param j
+	 * @param link the link that will be copied into the new one; the coupling
+	 *            is shared
 	 */
-	public void coupleCores(int i, int j) {
-		coupling[i][j] = true;
-		coupling[j][i] = true;
+	protected FlexGridLink19MCF(FlexGridLink19MCF link) {
+		super(link);
+	}
+	
+	@Override
+	public FlexGridLink copy() {
+		return new FlexGridLink19MCF(this);
 	}
 
 }
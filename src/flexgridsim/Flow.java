@@ -4,8 +4,6 @@
  */
 package flexgridsim;
 
-import java.util.ArrayList;
-
 /**
  * The Flow class defines an object that can be thought of as a flow
  * of data, going from a source node to a destination node. 
@@ -21,7 +19,7 @@ public class Flow {
     private double duration;
     private int cos;
     private int[] links;
-    private ArrayList<Slot> slotList;
+    private SlotSet slotList;
     private double deadline;
     private boolean accepeted;
     private boolean groomed;
@@ -139,14 +137,14 @@ public class Flow {
     /**
      * @return the list of channels allocated for all cores
      */
-    public ArrayList<Slot> getSlotList() {
+    public SlotSet getSlotList() {
 		return slotList;
 	}
     
 	/**
 	 * @param slotList list of slots
 	 */
-	public void setSlotList(ArrayList<Slot> slotList) {
+	public void setSlotList(SlotSet slotList) {
 		this.slotList = slotList;
 	}
 
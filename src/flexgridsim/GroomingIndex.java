@@ -0,0 +1,193 @@
+package flexgridsim;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Index of the live lightpaths that can take more traffic, for grooming new
+ * flows into them. The lightpaths of each (source, destination) pair are kept
+ * in a tree ordered by residual capacity, the bandwidth they still have after
+ * the rates of their flows, so the lightpath that best fits a flow is found in
+ * logarithmic time instead of by looking at every flow in the network.
+ *
+ * The index must be told when a lightpath is accepted with its first flow,
+ * when another flow is groomed into it and when each flow departs; a lightpath
+ * leaves the index with its last flow.
+ *
+ * @author pedrom
+ */
+public class GroomingIndex {
+
+    private int nodes;
+    private Map<Integer, TreeSet<Entry>> byPair;
+    private Map<Long, Entry> byLightpath;
+    private Map<Long, Entry> byFlow;
+
+    /**
+     * A live lightpath, its residual capacity and the number of flows it
+     * carries.
+     */
+    private static class Entry {
+        private long id;
+        private LightPath lightpath;
+        private double residual;
+        private int flows;
+
+        private Entry(long id, LightPath lightpath, double residual) {
+            this.id = id;
+            this.lightpath = lightpath;
+            this.residual = residual;
+        }
+    }
+
+    /**
+     * Orders lightpaths by residual capacity, and then by id.
+     */
+    private static final Comparator<Entry> BY_RESIDUAL = new Comparator<Entry>() {
+        public int compare(Entry a, Entry b) {
+            if (a.residual != b.residual) {
+                return a.residual < b.residual ? -1 : 1;
+            }
+            if (a.id != b.id) {
+                return a.id < b.id ? -1 : 1;
+            }
+            return 0;
+        }
+    };
+
+    /**
+     * Creates a new, empty GroomingIndex.
+     *
+     * @param nodes the number of nodes of the network
+     */
+    public GroomingIndex(int nodes) {
+        this.nodes = nodes;
+        this.byPair = new HashMap<Integer, TreeSet<Entry>>();
+        this.byLightpath = new HashMap<Long, Entry>();
+        this.byFlow = new HashMap<Long, Entry>();
+    }
+
+    /**
+     * Adds a lightpath that was just accepted with its first flow.
+     *
+     * @param flow the flow the lightpath was created for
+     * @param lightpath the lightpath
+     * @param capacity the bandwidth the lightpath can carry
+     */
+    public void addLightpath(Flow flow, LightPath lightpath, double capacity) {
+        if (byLightpath.containsKey(lightpath.getID())) {
+            throw (new IllegalArgumentException());
+        }
+        Entry entry = new Entry(lightpath.getID(), lightpath, capacity);
+        byLightpath.put(lightpath.getID(), entry);
+        int pair = lightpath.getSource() * nodes + lightpath.getDestination();
+        TreeSet<Entry> tree = byPair.get(pair);
+        if (tree == null) {
+            tree = new TreeSet<Entry>(BY_RESIDUAL);
+            byPair.put(pair, tree);
+        }
+        tree.add(entry);
+        addFlow(entry, flow);
+    }
+
+    /**
+     * Finds the lightpath between two nodes with the smallest residual
+     * capacity that still fits a rate; among lightpaths with the same
+     * residual capacity, the one with the lowest id.
+     *
+     * @param src the source node
+     * @param dst the destination node
+     * @param rate the bandwidth needed
+     * @return the lightpath, or null if none has enough residual capacity
+     */
+    public LightPath findLightpath(int src, int dst, double rate) {
+        TreeSet<Entry> tree = byPair.get(src * nodes + dst);
+        if (tree == null) {
+            return null;
+        }
+        Entry entry = tree.ceiling(new Entry(Long.MIN_VALUE, null, rate));
+        return entry == null ? null : entry.lightpath;
+    }
+
+    /**
+     * Adds a flow groomed into a lightpath of the index, taking its rate from
+     * the residual capacity of the lightpath.
+     *
+     * @param flow the flow
+     * @param lightpath the lightpath
+     * @throws IllegalArgumentException if the lightpath is not in the index,
+     *             the flow already is, or the residual capacity of the
+     *             lightpath is smaller than the rate of the flow
+     */
+    public void groom(Flow flow, LightPath lightpath) {
+        Entry entry = byLightpath.get(lightpath.getID());
+        if (entry == null || byFlow.containsKey(flow.getID()) || entry.residual < flow.getRate()) {
+            throw (new IllegalArgumentException());
+        }
+        addFlow(entry, flow);
+    }
+
+    /**
+     * Removes a flow that departed, giving its rate back to its lightpath.
+     *
+     * @param flow the flow
+     * @return false if other flows still use the lightpath of the flow, or
+     *         true if the lightpath left the index with the flow, or the flow
+     *         was not in the index
+     */
+    public boolean removeFlow(Flow flow) {
+        Entry entry = byFlow.remove(flow.getID());
+        if (entry == null) {
+            return true;
+        }
+        TreeSet<Entry> tree = treeOf(entry.lightpath);
+        tree.remove(entry);
+        entry.flows--;
+        if (entry.flows == 0) {
+            byLightpath.remove(entry.lightpath.getID());
+            return true;
+        }
+        entry.residual += flow.getRate();
+        tree.add(entry);
+        return false;
+    }
+
+    /**
+     * Gets the residual capacity of a lightpath.
+     *
+     * @param lightpath the lightpath
+     * @return the bandwidth the lightpath can still take, or 0 if it is not
+     *         in the index
+     */
+    public double getResidualCapacity(LightPath lightpath) {
+        Entry entry = byLightpath.get(lightpath.getID());
+        return entry == null ? 0 : entry.residual;
+    }
+
+    /**
+     * Gets the number of flows carried by a lightpath.
+     *
+     * @param lightpath the lightpath
+     * @return the number of flows, or 0 if the lightpath is not in the index
+     */
+    public int getNumFlows(LightPath lightpath) {
+        Entry entry = byLightpath.get(lightpath.getID());
+        return entry == null ? 0 : entry.flows;
+    }
+
+    private TreeSet<Entry> treeOf(LightPath lightpath) {
+        return byPair.get(lightpath.getSource() * nodes + lightpath.getDestination());
+    }
+
+    private void addFlow(Entry entry, Flow flow) {
+        TreeSet<Entry> tree = treeOf(entry.lightpath);
+        // The residual capacity is part of the order of the tree
+        tree.remove(entry);
+        entry.residual -= flow.getRate();
+        entry.flows++;
+        tree.add(entry);
+        byFlow.put(flow.getID(), entry);
+    }
+}
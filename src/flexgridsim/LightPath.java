@@ -4,8 +4,6 @@
  */
 package flexgridsim;
 
-import java.util.ArrayList;
-
 /**
  * In an optical network, a lightpath is a clear optical path which may traverse
  * several links in the network. It is also good to know that information
@@ -20,7 +18,7 @@ public class LightPath {
 	private int src;
 	private int dst;
 	private int[] links;
-	private ArrayList<Slot> slotList;
+	private SlotSet slotList;
 	private int modulationLevel;
 
 	/**
@@ -33,7 +31,7 @@ public class LightPath {
 	 * @param slotList list of slots
 	 * @param modulationLevel the modulation level
 	 */
-	public LightPath(long id, int src, int dst, int[] links, ArrayList<Slot> slotList, int modulationLevel) {
+	public LightPath(long id, int src, int dst, int[] links, SlotSet slotList, int modulationLevel) {
 		if (id < 0 || src < 0 || dst < 0 || links.length < 1) {
 			throw (new IllegalArgumentException());
 		} else {
@@ -115,14 +113,14 @@ public class LightPath {
     /**
      * @return the list of channels allocated for all cores
      */
-    public ArrayList<Slot> getSlotList() {
+    public SlotSet getSlotList() {
 		return slotList;
 	}
     
 	/**
 	 * @param slotList list of slots
 	 */
-	public void setChannel(ArrayList<Slot> slotList) {
+	public void setChannel(SlotSet slotList) {
 		this.slotList = slotList;
 	}
 
@@ -24,12 +24,29 @@ public class Main {
 	 */
 	public static void main(String[] args) {
 		Simulator flexgridsim;
-		String usage = "Usage: flexgridsim simulation_file seed [-trace] [-verbose] [minload maxload step]";
+		String usage = "Usage: flexgridsim simulation_file seed [-trace] [-verbose] [-threads N] [minload maxload step]";
 		String simConfigFile;
 		boolean verbose = false;
 		boolean trace = false;
 		int seed = 1;
 		double minload = 0, maxload = 0, step = 1;
+		int threads = 1;
+
+		// -threads N may appear anywhere after the two required arguments
+		for (int i = 2; i < args.length; i++) {
+			if (args[i].equals("-threads")) {
+				if (i + 1 >= args.length) {
+					System.out.println(usage);
+					System.exit(0);
+				}
+				threads = Integer.parseInt(args[i + 1]);
+				String[] remaining = new String[args.length - 2];
+				System.arraycopy(args, 0, remaining, 0, i);
+				System.arraycopy(args, i + 2, remaining, i, args.length - i - 2);
+				args = remaining;
+				break;
+			}
+		}
 
 		if (args.length < 2 || args.length > 7) {
 			System.out.println(usage);
@@ -68,9 +85,19 @@ public class Main {
 		simConfigFile = args[0];
 		seed = Integer.parseInt(args[1]);
 
-		for (double load = minload; load <= maxload; load += step) {
+		if (threads > 1) {
+			flexgridsim = new Simulator();
+			flexgridsim.ExecuteParallel(simConfigFile, trace, verbose, minload, maxload, step, seed, threads);
+		} else {
+			// The simulation file is parsed once and shared by every load
 			flexgridsim = new Simulator();
-			flexgridsim.Execute(simConfigFile, trace, verbose, load, seed);
+			Scenario scenario = flexgridsim.loadScenario(simConfigFile, trace, verbose);
+			if (scenario != null) {
+				for (double load = minload; load <= maxload; load += step) {
+					flexgridsim = new Simulator();
+					flexgridsim.Execute(scenario, load, seed);
+				}
+			}
 		}
 	}
 }
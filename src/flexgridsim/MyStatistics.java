@@ -4,7 +4,7 @@ package flexgridsim;
  * The Class MyStatistics.
  */
 public class MyStatistics {
-	private static MyStatistics singletonObject;
+	private static final ThreadLocal<MyStatistics> singletonObject = new ThreadLocal<MyStatistics>();
 	private OutputManager plotter;
 	private PhysicalTopology pt;
 	private TrafficGenerator traffic;
@@ -39,9 +39,10 @@ public class MyStatistics {
     private int[][] numberOfUsedTransponders;
     
     /**
-     * A private constructor that prevents any other class from instantiating.
+     * A package-private constructor, so only a SimulationContext or the
+     * singleton can create new objects.
      */
-    private MyStatistics() {
+    MyStatistics() {
     	
         numberArrivals = 0;
 
@@ -55,15 +56,17 @@ public class MyStatistics {
     }
     
     /**
-     * Creates a new MyStatistics object, in case it does'n exist yet.
+     * Creates a new MyStatistics object, in case it does'n exist yet. Each
+     * thread has its own object, so simulations can run in parallel. Kept for
+     * compatibility; new code should use SimulationContext.getStatistics().
      * 
      * @return the MyStatistics singletonObject
      */
-    public static synchronized MyStatistics getMyStatisticsObject() {
-        if (singletonObject == null) {
-            singletonObject = new MyStatistics();
+    public static MyStatistics getMyStatisticsObject() {
+        if (singletonObject.get() == null) {
+            singletonObject.set(new MyStatistics());
         }
-        return singletonObject;
+        return singletonObject.get();
     }
     
     /**
@@ -389,6 +392,6 @@ public class MyStatistics {
      */
     public void finish()
     {
-        singletonObject = null;
+        singletonObject.remove();
     }
 }
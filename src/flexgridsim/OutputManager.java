@@ -30,6 +30,36 @@ public class OutputManager {
 		}
 	}
 	
+	/**
+	 * Instantiates a new empty graph plotter with the same graphs of another
+	 * one.
+	 *
+	 * @param plotter the plotter whose graphs will be copied, without their dots
+	 */
+	public OutputManager(OutputManager plotter) {
+		numberOfGraphs = plotter.numberOfGraphs;
+		graphs = new Graph[numberOfGraphs];
+		for (int i = 0; i < numberOfGraphs; i++) {
+			graphs[i] = new Graph(plotter.graphs[i].getName(), plotter.graphs[i].getDotsFileName(),
+					plotter.graphs[i].getDataSet().getDimension());
+		}
+	}
+	
+	/**
+	 * Adds the dots of every graph of another plotter to the graphs of this
+	 * one with the same name.
+	 *
+	 * @param plotter the plotter whose dots will be added
+	 */
+	public void merge(OutputManager plotter) {
+		for (Graph graph : plotter.graphs) {
+			try {
+				this.getGraph(graph.getName()).getDataSet().addDots(graph.getDataSet());
+			} catch (GraphNotFoundException e) {
+			}
+		}
+	}
+	
 	/**
 	 * Plot all graphs.
 	 */
@@ -0,0 +1,86 @@
+package flexgridsim;
+
+/**
+ * A set of slots reserved in every link of a path, created by
+ * PhysicalTopology.reservePath(). The reservation is tentative until it is
+ * committed: rolling it back releases the slots of every link, so an RSA
+ * module can hold a candidate allocation while it checks something else.
+ * Once committed, the slots belong to whoever committed them and are released
+ * with PhysicalTopology.releasePath().
+ *
+ * @author pedrom
+ */
+public class PathReservation {
+
+    private PhysicalTopology pt;
+    private int[] links;
+    private SlotSet slotList;
+    private boolean open;
+
+    /**
+     * Creates a new PathReservation for slots already reserved in the links.
+     *
+     * @param pt the physical topology of the links
+     * @param links the ids of the links of the path
+     * @param slotList the slots reserved in each link
+     */
+    PathReservation(PhysicalTopology pt, int[] links, SlotSet slotList) {
+        this.pt = pt;
+        this.links = links;
+        this.slotList = slotList;
+        this.open = true;
+    }
+
+    /**
+     * Keeps the slots reserved. After that the reservation can no longer be
+     * rolled back.
+     *
+     * @throws IllegalStateException if the reservation was already committed or rolled back
+     */
+    public void commit() {
+        if (!open) {
+            throw (new IllegalStateException());
+        }
+        open = false;
+    }
+
+    /**
+     * Releases the slots in every link of the path.
+     *
+     * @throws IllegalStateException if the reservation was already committed or rolled back
+     */
+    public void rollback() {
+        if (!open) {
+            throw (new IllegalStateException());
+        }
+        open = false;
+        pt.releasePath(links, slotList);
+    }
+
+    /**
+     * Says whether the reservation can still be committed or rolled back.
+     *
+     * @return true if it was neither committed nor rolled back
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Retrieves the links of the path.
+     *
+     * @return the ids of the links
+     */
+    public int[] getLinks() {
+        return links;
+    }
+
+    /**
+     * Retrieves the slots reserved in each link.
+     *
+     * @return the set of slots
+     */
+    public SlotSet getSlotList() {
+        return slotList;
+    }
+}
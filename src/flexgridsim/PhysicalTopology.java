@@ -4,10 +4,10 @@
  */
 package flexgridsim;
 
-import java.util.ArrayList;
-
 import org.w3c.dom.*;
 
+import flexgridsim.util.CsrGraph;
+import flexgridsim.util.PathCache;
 import flexgridsim.util.WeightedGraph;
 
 /**
@@ -26,7 +26,8 @@ public class PhysicalTopology {
     private double slotBw;
     private OXC[] nodeVector;
     private FlexGridLink[] linkVector;
-    private FlexGridLink[][] adjMatrix;
+    private CsrGraph graph;
+    private PathCache pathCache;
     
     
     /**
@@ -72,7 +73,6 @@ public class PhysicalTopology {
             }
             
             linkVector = new FlexGridLink[links];
-            adjMatrix = new FlexGridLink[nodes][nodes];
           
             for (int i = 0; i < links; i++) {
                 id = Integer.parseInt(((Element) linklist.item(i)).getAttribute("id"));
@@ -82,20 +82,81 @@ public class PhysicalTopology {
                 weight = Double.parseDouble(((Element) linklist.item(i)).getAttribute("weight"));
                 distance = Integer.parseInt(((Element) linklist.item(i)).getAttribute("distance"));
                 if (cores==7) {
-                	linkVector[id] = adjMatrix[src][dst] = new FlexGridLink7MCF(id, src, dst, cores, delay, slots, weight, distance);
+                	linkVector[id] = new FlexGridLink7MCF(id, src, dst, cores, delay, slots, weight, distance);
                 } else if (cores == 12) {
-                	linkVector[id] = adjMatrix[src][dst] = new FlexGridLink12MCF(id, src, dst, cores, delay, slots, weight, distance);
+                	linkVector[id] = new FlexGridLink12MCF(id, src, dst, cores, delay, slots, weight, distance);
                 } else if (cores == 19) {
-                	linkVector[id] = adjMatrix[src][dst] = new FlexGridLink19MCF(id, src, dst, cores, delay, slots, weight, distance);
+                	linkVector[id] = new FlexGridLink19MCF(id, src, dst, cores, delay, slots, weight, distance);
                 } else {
-                	linkVector[id] = adjMatrix[src][dst] = new FlexGridLink(id, src, dst, cores, delay, slots, weight, distance);
+                	linkVector[id] = new FlexGridLink(id, src, dst, cores, delay, slots, weight, distance);
                 }
             }
+            graph = createGraph();
+            
+            // Compute the k shortest paths of every pair of nodes
+            int k = 5;
+            if (xml.hasAttribute("paths")) {
+                k = Integer.parseInt(xml.getAttribute("paths"));
+            }
+            pathCache = new PathCache(this, k);
         } catch (Throwable t) {
             t.printStackTrace();
         }
     }
     
+    /**
+     * Creates a new PhysicalTopology object with the same nodes and links of
+     * another one. Every link gets its own copy of the spectrum, while the
+     * path cache and other read-only data are shared, so a topology parsed
+     * once can be reused by every simulation.
+     * 
+     * @param pt the topology that will be copied into the new one
+     */
+    public PhysicalTopology(PhysicalTopology pt) {
+        nodes = pt.nodes;
+        links = pt.links;
+        cores = pt.cores;
+        slots = pt.slots;
+        slotBw = pt.slotBw;
+        nodeVector = pt.nodeVector;
+        linkVector = new FlexGridLink[pt.linkVector.length];
+        for (int i = 0; i < linkVector.length; i++) {
+            if (pt.linkVector[i] != null) {
+                linkVector[i] = pt.linkVector[i].copy();
+            }
+        }
+        graph = pt.graph;
+        pathCache = pt.pathCache;
+    }
+    
+    /**
+     * Builds the graph of the links, with one edge for each link, weighted by
+     * the link weight and labeled with the link id.
+     */
+    private CsrGraph createGraph() {
+        int count = 0;
+        for (int i = 0; i < linkVector.length; i++) {
+            if (linkVector[i] != null) {
+                count++;
+            }
+        }
+        int[] sources = new int[count];
+        int[] targets = new int[count];
+        double[] weights = new double[count];
+        int[] ids = new int[count];
+        count = 0;
+        for (int i = 0; i < linkVector.length; i++) {
+            if (linkVector[i] != null) {
+                sources[count] = linkVector[i].getSource();
+                targets[count] = linkVector[i].getDestination();
+                weights[count] = linkVector[i].getWeight();
+                ids[count] = i;
+                count++;
+            }
+        }
+        return new CsrGraph(nodes, sources, targets, weights, ids);
+    }
+    
     /**
      * Retrieves the number of nodes in a given PhysicalTopology.
      * 
@@ -167,35 +228,51 @@ public class PhysicalTopology {
      * 
      * @param src the link's source node
      * @param dst the link's destination node
-     * @return the specified link from the PhysicalTopology's adjMatrix
+     * @return the specified link, or null if there is no link between the nodes
      */
     public FlexGridLink getLink(int src, int dst) {
-        return adjMatrix[src][dst];
+        int e = graph.findEdge(src, dst);
+        return e < 0 ? null : linkVector[graph.getLink(e)];
     }
     
     /**
      * Retrives a given PhysicalTopology's adjancency matrix, which
      * contains the links between source and destination nodes.
+     * The matrix is built on every call and takes memory proportional to
+     * the square of the number of nodes; getGraph() gives the same links in
+     * sparse form.
      * 
      * @return the PhysicalTopology's adjMatrix
      */
     public FlexGridLink[][] getAdjMatrix() {
+        FlexGridLink[][] adjMatrix = new FlexGridLink[nodes][nodes];
+        for (int i = 0; i < linkVector.length; i++) {
+            if (linkVector[i] != null) {
+                adjMatrix[linkVector[i].getSource()][linkVector[i].getDestination()] = linkVector[i];
+            }
+        }
         return adjMatrix;
     }
     
+    /**
+     * Retrieves the links of the topology as a sparse graph, with the weight
+     * and the id of each link.
+     * 
+     * @return the graph of the links
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+    
     /**
      * Says whether exists or not a link between two given nodes.
      * 
      * @param node1 possible link's source node
      * @param node2 possible link's destination node
-     * @return true if the link exists in the PhysicalTopology's adjMatrix
+     * @return true if the link exists in the PhysicalTopology
      */
     public boolean hasLink(int node1, int node2) {
-        if (adjMatrix[node1][node2] != null) {
-            return true;
-        } else {
-            return false;
-        }
+        return graph.findEdge(node1, node2) >= 0;
     }
 
     /**
@@ -208,16 +285,25 @@ public class PhysicalTopology {
     public WeightedGraph getWeightedGraph() {
         WeightedGraph g = new WeightedGraph(nodes);
         for (int i = 0; i < nodes; i++) {
-            for (int j = 0; j < nodes; j++) {
-                if (hasLink(i, j)) {
-                    g.addEdge(i, j, getLink(i, j).getWeight());
-                }
+            int end = graph.getEdgeEnd(i);
+            for (int e = graph.getEdgeStart(i); e < end; e++) {
+                g.addEdge(i, graph.getTarget(e), graph.getWeight(e));
             }
         }
         return g;
     }
     
 
+    /**
+     * Retrieves the k shortest paths between every pair of nodes, computed
+     * when the topology was created.
+     * 
+     * @return the PhysicalTopology's path cache
+     */
+    public PathCache getPathCache() {
+        return pathCache;
+    }
+    
     /**
      * Gets the node degree.
      *
@@ -225,13 +311,7 @@ public class PhysicalTopology {
      * @return the node degree
      */
     public int getNodeDegree(int nodeID){
-    	int degree = 0;
-    	for (int i = 0; i < adjMatrix[nodeID].length; i++) {
-			if (adjMatrix[nodeID][i] != null){
-				degree++;
-			}
-		}
-    	return degree;
+    	return graph.getDegree(nodeID);
     }
     
     
@@ -242,7 +322,7 @@ public class PhysicalTopology {
      *
      * @return true, if successful
      */
-    public boolean canGroom(Flow flow, ArrayList<Slot> slotList){
+    public boolean canGroom(Flow flow, SlotSet slotList){
 		if (this.getLink(flow.getSource(), flow.getDestination()).areSlotsAvailable(slotList, flow.getModulationLevel())){
 			return true;
 		} else {
@@ -250,6 +330,71 @@ public class PhysicalTopology {
 		}
     }
     
+    /**
+     * Says whether or not a set of slots is free in every link of a path.
+     * Stops at the first link where a slot is in use.
+     * 
+     * @param links the ids of the links of the path
+     * @param slotList the slots that would be reserved in each link
+     * @return true if every slot is free in every link
+     * @throws IllegalArgumentException if a slot does not exist in a link
+     */
+    public boolean canReservePath(int[] links, SlotSet slotList) {
+        for (int i = 0; i < links.length; i++) {
+            if (!linkVector[links[i]].areSlotsAvailable(slotList, 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Reserves a set of slots in every link of a path, if all of them are
+     * free. Nothing is reserved when any of them is in use.
+     * 
+     * @param links the ids of the links of the path
+     * @param slotList the slots to be reserved in each link
+     * @return the reservation, to be committed or rolled back, or null if a slot is in use
+     * @throws IllegalArgumentException if a slot does not exist in a link
+     */
+    public PathReservation reservePath(int[] links, SlotSet slotList) {
+        if (!canReservePath(links, slotList)) {
+            return null;
+        }
+        for (int i = 0; i < links.length; i++) {
+            linkVector[links[i]].reserveSlots(slotList);
+        }
+        return new PathReservation(this, links, slotList);
+    }
+    
+    /**
+     * Says whether or not a set of slots is reserved in every link of a path.
+     * 
+     * @param links the ids of the links of the path
+     * @param slotList the set of slots
+     * @return true if every slot is in use in every link
+     */
+    public boolean isPathReserved(int[] links, SlotSet slotList) {
+        for (int i = 0; i < links.length; i++) {
+            if (!linkVector[links[i]].areSlotsReserved(slotList)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Releases a set of slots in every link of a path.
+     * 
+     * @param links the ids of the links of the path
+     * @param slotList the slots to be released in each link
+     */
+    public void releasePath(int[] links, SlotSet slotList) {
+        for (int i = 0; i < links.length; i++) {
+            linkVector[links[i]].releaseSlots(slotList);
+        }
+    }
+    
     /**
      * Prints all nodes and links between them in the PhysicalTopology object.
      * 
@@ -259,10 +404,9 @@ public class PhysicalTopology {
     public String toString() {
         String topo = "";
         for (int i = 0; i < nodes; i++) {
-            for (int j = 0; j < nodes; j++) {
-                if (adjMatrix[i][j] != null) {
-                    topo += adjMatrix[i][j].toString() + "\n\n";
-                }
+            int end = graph.getEdgeEnd(i);
+            for (int e = graph.getEdgeStart(i); e < end; e++) {
+                topo += linkVector[graph.getLink(e)].toString() + "\n\n";
             }
         }
         return topo;
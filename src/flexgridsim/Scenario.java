@@ -0,0 +1,107 @@
+package flexgridsim;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * The contents of a simulation file, parsed only once. The physical topology
+ * and the traffic are kept as templates that are never simulated; each run
+ * gets its own copy, so the XML file is not walked again for every load and
+ * seed.
+ *
+ * The remaining elements are only read by the virtual topology and by the RSA
+ * modules. DOM trees are not thread-safe, so code that reads them while
+ * several simulations run must synchronize on the Scenario object.
+ *
+ * @author pedrom
+ */
+public class Scenario {
+
+    private String simConfigFile;
+    private PhysicalTopology pt;
+    private TrafficGenerator traffic;
+    private OutputManager graphs;
+    private Element virtualTopologyXml;
+    private Element rsaXml;
+    private String rsaModule;
+
+    /**
+     * Creates a new Scenario object from a parsed simulation file.
+     *
+     * @param simConfigFile name of the XML file
+     * @param doc the parsed XML file
+     */
+    public Scenario(String simConfigFile, Document doc) {
+        this.simConfigFile = simConfigFile;
+        pt = new PhysicalTopology((Element) doc.getElementsByTagName("physical-topology").item(0));
+        traffic = new TrafficGenerator((Element) doc.getElementsByTagName("traffic").item(0), 0);
+        graphs = new OutputManager((Element) doc.getElementsByTagName("graphs").item(0));
+        virtualTopologyXml = (Element) doc.getElementsByTagName("virtual-topology").item(0);
+        rsaXml = (Element) doc.getElementsByTagName("rsa").item(0);
+        rsaModule = "flexgridsim.rsa." + rsaXml.getAttribute("module");
+    }
+
+    /**
+     * Creates a new physical topology for a simulation, with every slot free.
+     *
+     * @return a copy of the parsed physical topology
+     */
+    public PhysicalTopology newPhysicalTopology() {
+        return new PhysicalTopology(pt);
+    }
+
+    /**
+     * Creates a new traffic generator for a simulation.
+     *
+     * @param forcedLoad the offered load; if zero, the load of the XML file is used
+     * @return a traffic generator with the parsed traffic information
+     */
+    public TrafficGenerator newTrafficGenerator(double forcedLoad) {
+        return new TrafficGenerator(traffic, forcedLoad);
+    }
+
+    /**
+     * Creates a new graph plotter, with the graphs of the XML file and no dots.
+     *
+     * @return the graph plotter
+     */
+    public OutputManager newOutputManager() {
+        return new OutputManager(graphs);
+    }
+
+    /**
+     * Retrieves the name of the XML file.
+     *
+     * @return the name of the simulation file
+     */
+    public String getConfigFile() {
+        return simConfigFile;
+    }
+
+    /**
+     * Retrieves the virtual-topology element of the XML file.
+     *
+     * @return the virtual topology element
+     */
+    public Element getVirtualTopologyXml() {
+        return virtualTopologyXml;
+    }
+
+    /**
+     * Retrieves the rsa element of the XML file.
+     *
+     * @return the rsa element
+     */
+    public Element getRSAXml() {
+        return rsaXml;
+    }
+
+    /**
+     * Retrieves the full name of the RSA class.
+     *
+     * @return the RSA module
+     */
+    public String getRSAModule() {
+        return rsaModule;
+    }
+}
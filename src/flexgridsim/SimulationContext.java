@@ -0,0 +1,92 @@
+package flexgridsim;
+
+/**
+ * Everything that belongs to a single simulation run: its statistics, tracer,
+ * event scheduler, traffic and physical topology. Objects of a run get these
+ * from its context instead of from process-wide singletons, so several runs
+ * can share the same JVM.
+ *
+ * @author pedrom
+ */
+public class SimulationContext {
+
+    private MyStatistics statistics;
+    private Tracer tracer;
+    private EventScheduler events;
+    private PhysicalTopology pt;
+    private TrafficGenerator traffic;
+
+    /**
+     * Creates a new SimulationContext with its own statistics and tracer.
+     *
+     * @param pt the physical topology of the run
+     * @param events the event scheduler of the run
+     * @param traffic the traffic generator of the run
+     */
+    public SimulationContext(PhysicalTopology pt, EventScheduler events, TrafficGenerator traffic) {
+        this(pt, events, traffic, new MyStatistics(), new Tracer());
+    }
+
+    /**
+     * Creates a new SimulationContext around existing statistics and tracer.
+     *
+     * @param pt the physical topology of the run
+     * @param events the event scheduler of the run
+     * @param traffic the traffic generator of the run
+     * @param statistics the statistics of the run
+     * @param tracer the tracer of the run
+     */
+    SimulationContext(PhysicalTopology pt, EventScheduler events, TrafficGenerator traffic,
+            MyStatistics statistics, Tracer tracer) {
+        this.pt = pt;
+        this.events = events;
+        this.traffic = traffic;
+        this.statistics = statistics;
+        this.tracer = tracer;
+    }
+
+    /**
+     * Retrieves the statistics of the run.
+     *
+     * @return the MyStatistics object
+     */
+    public MyStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Retrieves the tracer of the run.
+     *
+     * @return the Tracer object
+     */
+    public Tracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Retrieves the event scheduler of the run.
+     *
+     * @return the EventScheduler object
+     */
+    public EventScheduler getEventScheduler() {
+        return events;
+    }
+
+    /**
+     * Retrieves the physical topology of the run.
+     *
+     * @return the PhysicalTopology object
+     */
+    public PhysicalTopology getPhysicalTopology() {
+        return pt;
+    }
+
+    /**
+     * Retrieves the traffic generator of the run.
+     *
+     * @return the TrafficGenerator object
+     */
+    public TrafficGenerator getTraffic() {
+        return traffic;
+    }
+}
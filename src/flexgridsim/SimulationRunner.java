@@ -19,11 +19,28 @@ public class SimulationRunner {
      * @param events the simulation's event scheduler
      */
 	public SimulationRunner(ControlPlane cp, EventScheduler events) {
+        run(cp, events, Tracer.getTracerObject(), MyStatistics.getMyStatisticsObject(), null);
+    }
+	
+    /**
+     * Creates a new SimulationRunner object for a simulation run.
+     * 
+     * @param cp the the simulation's control plane
+     * @param context the simulation run, with its event scheduler, tracer, statistics
+     *            and the traffic that generates the calls as the simulation advances
+     */
+	public SimulationRunner(ControlPlane cp, SimulationContext context) {
+        run(cp, context.getEventScheduler(), context.getTracer(), context.getStatistics(), context.getTraffic());
+    }
+	
+	private void run(ControlPlane cp, EventScheduler events, Tracer tr, MyStatistics st, TrafficGenerator traffic) {
         Event event;
-        Tracer tr = Tracer.getTracerObject();
-        MyStatistics st = MyStatistics.getMyStatisticsObject();
         
         while ((event = events.popEvent()) != null) {
+            // Calls are generated as the previous one arrives
+            if (traffic != null && event instanceof FlowArrivalEvent) {
+                traffic.nextArrival(events);
+            }
             tr.add(event);
             st.addEvent(event);
             cp.newEvent(event);
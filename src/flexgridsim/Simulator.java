@@ -5,6 +5,14 @@
 package flexgridsim;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.w3c.dom.*;
 
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -40,6 +48,114 @@ public class Simulator {
      */
     public void Execute(String simConfigFile, boolean trace, boolean verbose, double forcedLoad, int numberOfSimulations) {
 
+        Scenario scenario = loadScenario(simConfigFile, trace, verbose);
+        if (scenario != null) {
+            Execute(scenario, forcedLoad, numberOfSimulations);
+        }
+    }
+    
+    /**
+     * Parses a simulation file once, so several loads can be simulated
+     * without reading it again.
+     * 
+     * @param simConfigFile name of the XML file that contains all information about the simulation
+     * @param trace activates the Tracer class functionalities
+     * @param verbose activates the printing of information about the simulation, on runtime, for debugging purposes
+     * @return the parsed scenario, or null if the file could not be parsed
+     */
+    public Scenario loadScenario(String simConfigFile, boolean trace, boolean verbose) {
+
+        setFlags(trace, verbose);
+        try {
+            return new Scenario(simConfigFile, parseConfigFile(simConfigFile));
+        } catch (Throwable t) {
+            printError(t);
+            return null;
+        }
+    }
+    
+    /**
+     * Executes the simulations of a parsed scenario with one load.
+     * 
+     * @param scenario the parsed simulation file
+     * @param forcedLoad range of loads for which several simulations are automated; if not specified, load is taken from the XML file
+     * @param numberOfSimulations a number in the interval [1,25] that defines up to 25 different random simulations
+     */
+    public void Execute(Scenario scenario, double forcedLoad, int numberOfSimulations) {
+
+        try {
+            OutputManager gp = scenario.newOutputManager();
+            
+            for (int seed = 1; seed <= numberOfSimulations; seed++) {
+                runSimulation(scenario, gp, forcedLoad, seed, false);
+            }
+            gp.writeAllToFiles();
+        } catch (Throwable t) {
+            printError(t);
+        }
+        
+    }
+    
+    /**
+     * Executes the simulations of a range of loads, using several threads.
+     * Each pair of load and seed is an independent simulation, with its own
+     * copy of the topology and statistics. The results of each
+     * load are merged in the order of the seeds and written in the order of
+     * the loads, so the output files are the same of a sequential execution.
+     * 
+     * @param simConfigFile name of the XML file that contains all information about the simulation
+     * @param trace activates the Tracer class functionalities; trace files get the seed in their names
+     * @param verbose activates the printing of information about the simulation, on runtime, for debugging purposes
+     * @param minload first load of the range
+     * @param maxload last load of the range
+     * @param step increment between two loads
+     * @param numberOfSimulations a number in the interval [1,25] that defines up to 25 different random simulations
+     * @param threads number of simulations that run at the same time
+     */
+    public void ExecuteParallel(String simConfigFile, boolean trace, boolean verbose, double minload, double maxload, double step, int numberOfSimulations, int threads) {
+
+        final Scenario scenario = loadScenario(simConfigFile, trace, verbose);
+        if (scenario == null) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Double> loads = new ArrayList<Double>();
+            ArrayList<List<Future<OutputManager>>> results = new ArrayList<List<Future<OutputManager>>>();
+            for (double load = minload; load <= maxload; load += step) {
+                final double forcedLoad = load;
+                List<Future<OutputManager>> seeds = new ArrayList<Future<OutputManager>>();
+                for (int seed = 1; seed <= numberOfSimulations; seed++) {
+                    final int simulation = seed;
+                    seeds.add(executor.submit(new Callable<OutputManager>() {
+                        public OutputManager call() throws Exception {
+                            OutputManager gp = scenario.newOutputManager();
+                            runSimulation(scenario, gp, forcedLoad, simulation, true);
+                            return gp;
+                        }
+                    }));
+                }
+                loads.add(load);
+                results.add(seeds);
+            }
+            
+            for (int i = 0; i < loads.size(); i++) {
+                OutputManager gp = scenario.newOutputManager();
+                for (Future<OutputManager> seed : results.get(i)) {
+                    gp.merge(seed.get());
+                }
+                gp.writeAllToFiles();
+            }
+        } catch (ExecutionException e) {
+            printError(e.getCause());
+        } catch (Throwable t) {
+            printError(t);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private void setFlags(boolean trace, boolean verbose) {
         Simulator.verbose = verbose;
         Simulator.trace = trace;
 
@@ -48,177 +164,188 @@ public class Simulator {
             System.out.println("# Simulator " + simName + " version " + simVersion.toString() + "  #");
             System.out.println("#################################\n");
         }
+    }
+    
+    /**
+     * Reads the XML file and checks its root element and version.
+     */
+    private Document parseConfigFile(String simConfigFile) throws Exception {
         if (Simulator.verbose) {
             System.out.println("(0) Accessing simulation file " + simConfigFile + "...");
         }
-        try {
-	        DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-	        DocumentBuilder docBuilder = docBuilderFactory.newDocumentBuilder();
-	        Document doc = docBuilder.parse(new File(simConfigFile));
-	
-	        // normalize text representation
-	        doc.getDocumentElement().normalize();
-	
-	        // check the root TAG name and version
-	        if (!doc.getDocumentElement().getNodeName().equals(simName)) {
-	            System.out.println("Root element of the simulation file is " + doc.getDocumentElement().getNodeName() + ", " + simName + " is expected!");
-	            System.exit(0);
-	        }
-	        if (!doc.getDocumentElement().hasAttribute("version")) {
-	            System.out.println("Cannot find version attribute!");
-	            System.exit(0);
-	        }
-	        if (Float.compare(new Float(doc.getDocumentElement().getAttribute("version")), simVersion) > 0) {
-	            System.out.println("Simulation config file requires a newer version of the simulator!");
-	            System.exit(0);
-	        }
-	        
-	        OutputManager gp = new OutputManager((Element) doc.getElementsByTagName("graphs").item(0));
-	        
-	        for (int seed = 1; seed <= numberOfSimulations; seed++) {
-	        
-	            long begin = System.currentTimeMillis();
-	
-	            
-	            if (Simulator.verbose) {
-	                System.out.println("(0) Done. (" + Float.toString((float) ((float) (System.currentTimeMillis() - begin) / (float) 1000)) + " sec)\n");
-	            }
-	
-	            /*
-	             * Extract physical topology part
-	             */
-	            begin = System.currentTimeMillis();
-	            if (Simulator.verbose) {
-	                System.out.println("(1) Loading physical topology information...");
-	            }
-	
-	            PhysicalTopology pt = new PhysicalTopology((Element) doc.getElementsByTagName("physical-topology").item(0));
-	            if (Simulator.verbose) {
-	                System.out.println(pt);
-	            }
-	
-	            if (Simulator.verbose) {
-	                System.out.println("(1) Done. (" + Float.toString((float) ((float) (System.currentTimeMillis() - begin) / (float) 1000)) + " sec)\n");
-	            }
-	
-	            /*
-	             * Extract virtual topology part
-	             */
-	            begin = System.currentTimeMillis();
-	            if (Simulator.verbose) {
-	                System.out.println("(2) Loading virtual topology information...");
-	            }
-	
-	            VirtualTopology vt = new VirtualTopology((Element) doc.getElementsByTagName("virtual-topology").item(0), pt);
-	            if (Simulator.verbose) {
-	                System.out.println(vt);
-	            }
-	
-	            if (Simulator.verbose) {
-	                System.out.println("(2) Done. (" + Float.toString((float) ((float) (System.currentTimeMillis() - begin) / (float) 1000)) + " sec)\n");
-	            }
-	
-	            /*
-	             * Extract simulation traffic part
-	             */
-	            begin = System.currentTimeMillis();
-	            if (Simulator.verbose) {
-	                System.out.println("(3) Loading traffic information...");
-	            }
-	
-	            EventScheduler events = new EventScheduler();
-	            TrafficGenerator traffic = new TrafficGenerator((Element) doc.getElementsByTagName("traffic").item(0), forcedLoad);
-	            traffic.generateTraffic(pt, events, seed);
-	
-	            if (Simulator.verbose) {
-	                System.out.println("(3) Done. (" + Float.toString((float) ((float) (System.currentTimeMillis() - begin) / (float) 1000)) + " sec)\n");
-	            }
-	
-	            /*
-	             * Load graph configuration
-	             */
-	            begin = System.currentTimeMillis();
-	            if (Simulator.verbose) {
-	                System.out.println("(4) Loading graphs configuration...");
-	            }
-	            
-	            
-	            /*
-	             * Extract simulation setup part
-	             */
-	            begin = System.currentTimeMillis();
-	            if (Simulator.verbose) {
-	                System.out.println("(4) Loading simulation setup information...");
-	            }
-	
-	            MyStatistics st = MyStatistics.getMyStatisticsObject();
-	            st.statisticsSetup(gp, pt, traffic, pt.getNumNodes(), 3, 0, forcedLoad);
-	
-	            Tracer tr = Tracer.getTracerObject();
-	            if (Simulator.trace == true)
-	            {
-	            	if (forcedLoad == 0) {
-	                	tr.setTraceFile(simConfigFile.substring(4, simConfigFile.length() - 4) + ".trace");
-	            	} else {
-	                	tr.setTraceFile(simConfigFile.substring(4, simConfigFile.length() - 4) + "_Load_" + Double.toString(forcedLoad) + ".trace");
-	            	}
-	            }
-	            tr.toogleTraceWriting(Simulator.trace);
-	            
-	            String rsaModule = "flexgridsim.rsa." + ((Element) doc.getElementsByTagName("rsa").item(0)).getAttribute("module");
-	            if (Simulator.verbose) {
-	                System.out.println("RSA module: " + rsaModule);
-	            }
-	            ControlPlane cp = new ControlPlane(((Element) doc.getElementsByTagName("rsa").item(0)), events, rsaModule, pt, vt, traffic);
-	
-	            if (Simulator.verbose) {
-	                System.out.println("(4) Done. (" + Float.toString((float) ((float) (System.currentTimeMillis() - begin) / (float) 1000)) + " sec)\n");
-	            }
-	            
-	            
-	            /*
-	             * Run the simulation
-	             */
-	            begin = System.currentTimeMillis();
-	            if (Simulator.verbose) {
-	                System.out.println("(5) Running the simulation...");
-	            }
-	            System.out.println(simConfigFile+ " -> Load "+ forcedLoad +": Running the simulation number " + seed);
-	            new SimulationRunner(cp, events);
-	
-	            if (Simulator.verbose) {
-	                System.out.println("(5) Done. (" + Float.toString((float) ((float) (System.currentTimeMillis() - begin) / (float) 1000)) + " sec)\n");
-	            }
-	
-	            if (Simulator.verbose) {
-	                if (forcedLoad == 0) {
-	                    System.out.println("Statistics (" + simConfigFile + "):\n");
-	                } else {
-	                    System.out.println("Statistics for " + Double.toString(forcedLoad) + " erlangs (" + simConfigFile + "):\n");
-	                }
-	                System.out.println(st.fancyStatistics());
-	            } else {
-	                st.calculateLastStatistics();
-	            }
-	            
-	            // Terminate MyStatistics singleton
-	            st.finish();
-	            if (Simulator.trace == true)
-	            	tr.finish();
-	        }
-	        gp.writeAllToFiles();
-        } catch (SAXParseException err) {
+        DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder docBuilder = docBuilderFactory.newDocumentBuilder();
+        Document doc = docBuilder.parse(new File(simConfigFile));
+
+        // normalize text representation
+        doc.getDocumentElement().normalize();
+
+        // check the root TAG name and version
+        if (!doc.getDocumentElement().getNodeName().equals(simName)) {
+            System.out.println("Root element of the simulation file is " + doc.getDocumentElement().getNodeName() + ", " + simName + " is expected!");
+            System.exit(0);
+        }
+        if (!doc.getDocumentElement().hasAttribute("version")) {
+            System.out.println("Cannot find version attribute!");
+            System.exit(0);
+        }
+        if (Float.compare(new Float(doc.getDocumentElement().getAttribute("version")), simVersion) > 0) {
+            System.out.println("Simulation config file requires a newer version of the simulator!");
+            System.exit(0);
+        }
+        return doc;
+    }
+    
+    /**
+     * Runs a single simulation, with one load and one seed, adding its results
+     * to the given graphs.
+     */
+    private void runSimulation(Scenario scenario, OutputManager gp, double forcedLoad, int seed, boolean seedInTraceFile) throws Exception {
+        String simConfigFile = scenario.getConfigFile();
+        long begin = System.currentTimeMillis();
+
+        
+        if (Simulator.verbose) {
+            System.out.println("(0) Done. (" + Float.toString((float) ((float) (System.currentTimeMillis() - begin) / (float) 1000)) + " sec)\n");
+        }
+
+        /*
+         * Extract physical topology part
+         */
+        begin = System.currentTimeMillis();
+        if (Simulator.verbose) {
+            System.out.println("(1) Loading physical topology information...");
+        }
+
+        PhysicalTopology pt = scenario.newPhysicalTopology();
+        if (Simulator.verbose) {
+            System.out.println(pt);
+        }
+
+        if (Simulator.verbose) {
+            System.out.println("(1) Done. (" + Float.toString((float) ((float) (System.currentTimeMillis() - begin) / (float) 1000)) + " sec)\n");
+        }
+
+        /*
+         * Extract virtual topology part
+         */
+        begin = System.currentTimeMillis();
+        if (Simulator.verbose) {
+            System.out.println("(2) Loading virtual topology information...");
+        }
+
+        EventScheduler events = new EventScheduler();
+        TrafficGenerator traffic = scenario.newTrafficGenerator(forcedLoad);
+        SimulationContext context = new SimulationContext(pt, events, traffic);
+        VirtualTopology vt;
+        synchronized (scenario) {
+            vt = new VirtualTopology(scenario.getVirtualTopologyXml(), context);
+        }
+        if (Simulator.verbose) {
+            System.out.println(vt);
+        }
+
+        if (Simulator.verbose) {
+            System.out.println("(2) Done. (" + Float.toString((float) ((float) (System.currentTimeMillis() - begin) / (float) 1000)) + " sec)\n");
+        }
+
+        /*
+         * Extract simulation traffic part
+         */
+        begin = System.currentTimeMillis();
+        if (Simulator.verbose) {
+            System.out.println("(3) Loading traffic information...");
+        }
+
+        traffic.startTraffic(pt, events, seed);
+
+        if (Simulator.verbose) {
+            System.out.println("(3) Done. (" + Float.toString((float) ((float) (System.currentTimeMillis() - begin) / (float) 1000)) + " sec)\n");
+        }
+
+        /*
+         * Extract simulation setup part
+         */
+        begin = System.currentTimeMillis();
+        if (Simulator.verbose) {
+            System.out.println("(4) Loading simulation setup information...");
+        }
+
+        MyStatistics st = context.getStatistics();
+        st.statisticsSetup(gp, pt, traffic, pt.getNumNodes(), 3, 0, forcedLoad);
+
+        Tracer tr = context.getTracer();
+        if (Simulator.trace == true)
+        {
+        	String traceFile = simConfigFile.substring(4, simConfigFile.length() - 4);
+        	if (forcedLoad != 0) {
+            	traceFile += "_Load_" + Double.toString(forcedLoad);
+        	}
+        	if (seedInTraceFile) {
+            	traceFile += "_Seed_" + Integer.toString(seed);
+        	}
+            tr.setTraceFile(traceFile + ".trace");
+        }
+        tr.toogleTraceWriting(Simulator.trace);
+        
+        String rsaModule = scenario.getRSAModule();
+        if (Simulator.verbose) {
+            System.out.println("RSA module: " + rsaModule);
+        }
+        ControlPlane cp;
+        synchronized (scenario) {
+            cp = new ControlPlane(scenario.getRSAXml(), context, rsaModule, vt);
+        }
+
+        if (Simulator.verbose) {
+            System.out.println("(4) Done. (" + Float.toString((float) ((float) (System.currentTimeMillis() - begin) / (float) 1000)) + " sec)\n");
+        }
+        
+        
+        /*
+         * Run the simulation
+         */
+        begin = System.currentTimeMillis();
+        if (Simulator.verbose) {
+            System.out.println("(5) Running the simulation...");
+        }
+        System.out.println(simConfigFile+ " -> Load "+ forcedLoad +": Running the simulation number " + seed);
+        new SimulationRunner(cp, context);
+
+        if (Simulator.verbose) {
+            System.out.println("(5) Done. (" + Float.toString((float) ((float) (System.currentTimeMillis() - begin) / (float) 1000)) + " sec)\n");
+        }
+
+        if (Simulator.verbose) {
+            if (forcedLoad == 0) {
+                System.out.println("Statistics (" + simConfigFile + "):\n");
+            } else {
+                System.out.println("Statistics for " + Double.toString(forcedLoad) + " erlangs (" + simConfigFile + "):\n");
+            }
+            System.out.println(st.fancyStatistics());
+        } else {
+            st.calculateLastStatistics();
+        }
+        
+        // Terminate MyStatistics singleton
+        st.finish();
+        if (Simulator.trace == true)
+        	tr.finish();
+    }
+    
+    private void printError(Throwable t) {
+        if (t instanceof SAXParseException) {
+            SAXParseException err = (SAXParseException) t;
             System.out.println("** Parsing error" + ", line " + err.getLineNumber() + ", uri " + err.getSystemId());
             System.out.println(" " + err.getMessage());
 
-        } catch (SAXException e) {
-            Exception x = e.getException();
-            ((x == null) ? e : x).printStackTrace();
+        } else if (t instanceof SAXException) {
+            Exception x = ((SAXException) t).getException();
+            ((x == null) ? t : x).printStackTrace();
 
-        } catch (Throwable t) {
+        } else {
             t.printStackTrace();
         }
-        
     }
 }
   
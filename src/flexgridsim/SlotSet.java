@@ -0,0 +1,213 @@
+package flexgridsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * An immutable set of slots of a multicore spectrum. A contiguous set of slots
+ * in a single core is stored as three integers (core, first slot and width);
+ * any other shape is stored as a sorted array of packed cells. Slots are
+ * always ordered by core and then by slot, so a set can be traversed as runs
+ * of contiguous slots without creating any object.
+ *
+ * @author pedrom
+ */
+public class SlotSet {
+
+	private int core;
+	private int firstSlot;
+	private int size;
+	private int[] cells;
+
+	/**
+	 * Creates a new SlotSet with a set of contiguous slots in a single core.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param firstSlot
+	 *            index of the first slot
+	 * @param width
+	 *            number of slots
+	 */
+	public SlotSet(int core, int firstSlot, int width) {
+		if (core < 0 || firstSlot < 0 || width < 1) {
+			throw (new IllegalArgumentException());
+		}
+		this.core = core;
+		this.firstSlot = firstSlot;
+		this.size = width;
+		this.cells = null;
+	}
+
+	/**
+	 * Creates a new SlotSet from an array of packed cells.
+	 *
+	 * @param packedCells
+	 *            cells created by pack(); the array is kept by the set and
+	 *            sorted
+	 * @param size
+	 *            number of cells used from the array
+	 */
+	public SlotSet(int[] packedCells, int size) {
+		if (size < 1 || size > packedCells.length) {
+			throw (new IllegalArgumentException());
+		}
+		Arrays.sort(packedCells, 0, size);
+		this.cells = packedCells;
+		this.size = size;
+		this.core = packedCells[0] >>> 16;
+		this.firstSlot = packedCells[0] & 0xFFFF;
+	}
+
+	/**
+	 * Creates a new SlotSet from a list of slots.
+	 *
+	 * @param slotList
+	 *            list of slots
+	 */
+	public SlotSet(ArrayList<Slot> slotList) {
+		this(packList(slotList), slotList.size());
+	}
+
+	/**
+	 * Packs a cell of the spectrum into a single integer.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param slot
+	 *            index of the slot
+	 * @return the packed cell
+	 */
+	public static int pack(int core, int slot) {
+		if (core < 0 || slot < 0 || core > 0x7FFF || slot > 0xFFFF) {
+			throw (new IllegalArgumentException());
+		}
+		return (core << 16) | slot;
+	}
+
+	private static int[] packList(ArrayList<Slot> slotList) {
+		int[] packed = new int[slotList.size()];
+		for (int i = 0; i < packed.length; i++) {
+			packed[i] = pack(slotList.get(i).c, slotList.get(i).s);
+		}
+		return packed;
+	}
+
+	/**
+	 * Retrieves the number of slots in the set.
+	 *
+	 * @return the number of slots
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Says whether the set is a single run of contiguous slots in one core.
+	 *
+	 * @return true if the slots are contiguous
+	 */
+	public boolean isContiguous() {
+		return cells == null;
+	}
+
+	/**
+	 * Retrieves the core of the i-th slot of the set.
+	 *
+	 * @param i
+	 *            index of the slot within the set
+	 * @return the core
+	 */
+	public int getCore(int i) {
+		return cells == null ? core : cells[i] >>> 16;
+	}
+
+	/**
+	 * Retrieves the slot index of the i-th slot of the set.
+	 *
+	 * @param i
+	 *            index of the slot within the set
+	 * @return the slot
+	 */
+	public int getSlot(int i) {
+		return cells == null ? firstSlot + i : cells[i] & 0xFFFF;
+	}
+
+	/**
+	 * Finds where the run of contiguous slots that starts at the i-th slot of
+	 * the set ends. Runs are traversed with
+	 * {@code for (int i = 0; i < set.size(); i = set.getRunEnd(i))}, and each
+	 * run covers slots getSlot(i) to getSlot(i) + getRunEnd(i) - i - 1 of core
+	 * getCore(i).
+	 *
+	 * @param i
+	 *            index of the first slot of the run within the set
+	 * @return the index, within the set, right after the last slot of the run
+	 */
+	public int getRunEnd(int i) {
+		if (cells == null) {
+			return size;
+		}
+		int j = i + 1;
+		while (j < size && cells[j] == cells[j - 1] + 1) {
+			j++;
+		}
+		return j;
+	}
+
+	/**
+	 * Retrieves the first slot of the set.
+	 *
+	 * @return the lowest slot index of the first core used by the set
+	 */
+	public int getFirstSlot() {
+		return firstSlot;
+	}
+
+	/**
+	 * Retrieves the last slot of the set.
+	 *
+	 * @return the highest slot index of the last core used by the set
+	 */
+	public int getLastSlot() {
+		return getSlot(size - 1);
+	}
+
+	/**
+	 * Says whether a slot belongs to the set.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param slot
+	 *            index of the slot
+	 * @return true if the slot is in the set
+	 */
+	public boolean contains(int core, int slot) {
+		if (cells == null) {
+			return core == this.core && slot >= firstSlot && slot < firstSlot + size;
+		}
+		return Arrays.binarySearch(cells, 0, size, pack(core, slot)) >= 0;
+	}
+
+	/**
+	 * Creates a list of Slot objects with the slots of the set.
+	 *
+	 * @return the list of slots
+	 */
+	public ArrayList<Slot> toList() {
+		ArrayList<Slot> slotList = new ArrayList<Slot>(size);
+		for (int i = 0; i < size; i++) {
+			slotList.add(new Slot(getCore(i), getSlot(i)));
+		}
+		return slotList;
+	}
+
+	@Override
+	public String toString() {
+		String set = "";
+		for (int i = 0; i < size; i = getRunEnd(i)) {
+			set += "(" + getCore(i) + "," + getSlot(i) + "-" + getSlot(getRunEnd(i) - 1) + ")";
+		}
+		return set;
+	}
+}
@@ -24,27 +24,30 @@ import java.io.PrintWriter;
 public class Tracer {
 
     private PrintWriter trace;
-    private static Tracer singletonObject;
+    private static final ThreadLocal<Tracer> singletonObject = new ThreadLocal<Tracer>();
     private boolean writeTrace;
 
     /**
-     * A private Constructor prevents any other class from instantiating.
+     * A package-private Constructor, so only a SimulationContext or the
+     * singleton can create new objects.
      */
-    private Tracer() {
+    Tracer() {
     	
     	writeTrace = true;
     }
     
     /**
-     * Creates a new Tracer object, in case it doesn't exist yet.
+     * Creates a new Tracer object, in case it doesn't exist yet. Each thread
+     * has its own object, so simulations can run in parallel. Kept for
+     * compatibility; new code should use SimulationContext.getTracer().
      * 
      * @return the Tracer's singletonObject attribute
      */
-    public static synchronized Tracer getTracerObject() {
-        if (singletonObject == null) {
-            singletonObject = new Tracer();
+    public static Tracer getTracerObject() {
+        if (singletonObject.get() == null) {
+            singletonObject.set(new Tracer());
         }
-        return singletonObject;
+        return singletonObject.get();
     }
     
     /**
@@ -189,6 +192,6 @@ public class Tracer {
     {
         trace.flush();
         trace.close();
-        singletonObject = null;
+        singletonObject.remove();
     }
 }
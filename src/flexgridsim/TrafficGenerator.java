@@ -18,17 +18,24 @@ public class TrafficGenerator {
 
     private int calls;
     private double load;
+    private double xmlLoad;
     private int maxRate;
     private TrafficInfo[] callsTypesInfo;
 	private double meanRate;
     private double meanHoldingTime;
     private int TotalWeight;
     private int numberCallsTypes;
-    private Element xml;
+    private boolean fileSizeValues;
     private int[] minRate;
     private double[] minSize;
     private double[] maxSize;
-    private NodeList fileSizes;
+    // State of the calls being generated
+    private int[] weightVector;
+    private double meanArrivalTime;
+    private double time;
+    private int id;
+    private int numNodes;
+    private Distribution dist1, dist2, dist3, dist4;
 
     /**
      * Creates a new TrafficGenerator object.
@@ -41,11 +48,13 @@ public class TrafficGenerator {
     public TrafficGenerator(Element xml, double forcedLoad) {
         int rate, cos, weight;
         double holdingTime;
-        this.xml = xml;
         calls = Integer.parseInt(xml.getAttribute("calls"));
+        if (xml.hasAttribute("load")) {
+            xmlLoad = Double.parseDouble(xml.getAttribute("load"));
+        }
         load = forcedLoad;
         if (load == 0) {
-            load = Double.parseDouble(xml.getAttribute("load"));
+            load = xmlLoad;
         }
         maxRate = Integer.parseInt(xml.getAttribute("max-rate"));
 
@@ -86,19 +95,76 @@ public class TrafficGenerator {
                 System.out.println("Mean holding time: " + Double.toString(holdingTime) + " seconds.");
             }
         }
+        
+        fileSizeValues = xml.hasAttribute("fileSizeValues");
+        if (fileSizeValues){
+        	NodeList fileSizes = xml.getElementsByTagName("fileSize");
+        	minRate = new int[fileSizes.getLength()];
+        	minSize = new double[fileSizes.getLength()];
+        	maxSize = new double[fileSizes.getLength()];
+        	for (int i = 0; i < fileSizes.getLength(); i++) {
+    			minRate[i] = Integer.parseInt(((Element)fileSizes.item(i)).getAttribute("minRate"));
+    			minSize[i] = Integer.parseInt(((Element)fileSizes.item(i)).getAttribute("minSize"));
+    			maxSize[i] = Integer.parseInt(((Element)fileSizes.item(i)).getAttribute("maxSize"));
+    		}
+        }
+    }
+    
+    /**
+     * Creates a new TrafficGenerator object with the traffic information of
+     * another one, already parsed, and a new load. The parsed information is
+     * shared, since it is never changed.
+     * 
+     * @param traffic the traffic generator whose information will be used
+     * @param forcedLoad the offered load; if zero, the load of the XML file is used
+     */
+    public TrafficGenerator(TrafficGenerator traffic, double forcedLoad) {
+        calls = traffic.calls;
+        xmlLoad = traffic.xmlLoad;
+        load = forcedLoad;
+        if (load == 0) {
+            load = xmlLoad;
+        }
+        maxRate = traffic.maxRate;
+        callsTypesInfo = traffic.callsTypesInfo;
+        meanRate = traffic.meanRate;
+        meanHoldingTime = traffic.meanHoldingTime;
+        TotalWeight = traffic.TotalWeight;
+        numberCallsTypes = traffic.numberCallsTypes;
+        fileSizeValues = traffic.fileSizeValues;
+        minRate = traffic.minRate;
+        minSize = traffic.minSize;
+        maxSize = traffic.maxSize;
     }
 
     /**
-     * Generates the network's traffic.
+     * Generates the network's traffic, scheduling every arrival and departure
+     * at once.
      *
      * @param events EventScheduler object that will contain the simulation events
      * @param pt the network's Physical Topology
      * @param seed a number in the interval [1,25] that defines up to 25 different random simulations
      */
     public void generateTraffic(PhysicalTopology pt, EventScheduler events, int seed) {
+        startTraffic(pt, events, seed);
+        while (nextArrival(events)) {
+        }
+    }
+    
+    /**
+     * Starts the network's traffic, scheduling only the first arrival and its
+     * departure. The following calls are generated one by one by nextArrival(),
+     * which must be called whenever an arrival leaves the event scheduler, so
+     * the scheduler only holds the active flows and the next arrival.
+     *
+     * @param events EventScheduler object that will contain the simulation events
+     * @param pt the network's Physical Topology
+     * @param seed a number in the interval [1,25] that defines up to 25 different random simulations
+     */
+    public void startTraffic(PhysicalTopology pt, EventScheduler events, int seed) {
 
         // Compute the weight vector
-        int[] weightVector = new int[TotalWeight];
+        weightVector = new int[TotalWeight];
         int aux = 0;
         for (int i = 0; i < numberCallsTypes; i++) {
             for (int j = 0; j < callsTypesInfo[i].getWeight(); j++) {
@@ -113,58 +179,55 @@ public class TrafficGenerator {
          * 1/meanArrivalRate = (holdingTime x bw/maxRate)/load
          * meanArrivalTime = (holdingTime x bw/maxRate)/load
          */
-        double meanArrivalTime = (meanHoldingTime * (meanRate / (double) maxRate)) / load;
+        meanArrivalTime = (meanHoldingTime * (meanRate / (double) maxRate)) / load;
 
-        // Generate events
-        int type, src, dst;
-        double time = 0.0;
-        int id = 0;
-        int numNodes = pt.getNumNodes();
-        Distribution dist1, dist2, dist3, dist4;
+        time = 0.0;
+        id = 0;
+        numNodes = pt.getNumNodes();
         dist1 = new Distribution(1, seed);
         dist2 = new Distribution(2, seed);
         dist3 = new Distribution(3, seed);
         dist4 = new Distribution(4, seed);
         
-        
-        if (this.xml.hasAttribute("fileSizeValues")){
-        	fileSizes = xml.getElementsByTagName("fileSize");
-        	minRate = new int[fileSizes.getLength()];
-        	minSize = new double[fileSizes.getLength()];
-        	maxSize = new double[fileSizes.getLength()];
-        	for (int i = 0; i < fileSizes.getLength(); i++) {
-    			minRate[i] = Integer.parseInt(((Element)fileSizes.item(i)).getAttribute("minRate"));
-    			minSize[i] = Integer.parseInt(((Element)fileSizes.item(i)).getAttribute("minSize"));
-    			maxSize[i] = Integer.parseInt(((Element)fileSizes.item(i)).getAttribute("maxSize"));
-    		}
-        	
+        nextArrival(events);
+    }
+    
+    /**
+     * Generates the next call, scheduling its arrival and its departure. The
+     * random numbers are drawn in the same order as if every call was
+     * generated at once.
+     *
+     * @param events EventScheduler object that will contain the simulation events
+     * @return true if a call was generated, false if all calls were already generated
+     */
+    public boolean nextArrival(EventScheduler events) {
+        if (dist1 == null || id >= calls) {
+            return false;
         }
-        
-        
-        for (int j = 0; j < calls; j++) {
-            type = weightVector[dist1.nextInt(TotalWeight)];
-            src = dst = dist2.nextInt(numNodes);
-            while (src == dst) {
-                dst = dist2.nextInt(numNodes);
-            }
-            double holdingTime;
-            //verifica se ha o atributo fileSizeValues, que indica que e utilizado esquema de batch
-			if (this.xml.hasAttribute("fileSizeValues")){
-				double fileSize = dist2.nextDoubleInTheInterval(minSize[j], maxSize[j]);
-				double rateInGbps = ocInGigaBits(callsTypesInfo[type].getRate());
-				holdingTime = (((fileSize)/rateInGbps)*8);
-		    } else {
-	            holdingTime = dist4.nextExponential(callsTypesInfo[type].getHoldingTime());
-		    }
-            Flow newFLow = new Flow(id, src, dst, time, callsTypesInfo[type].getRate(), holdingTime, callsTypesInfo[type].getCOS(), time+(holdingTime*0.5));
-            Event event;
-            event = new FlowArrivalEvent(time, newFLow);
-            time += dist3.nextExponential(meanArrivalTime);
-            events.addEvent(event);
-            event = new FlowDepartureEvent(time + holdingTime, id, newFLow);
-            events.addEvent(event);
-            id++;
+        int type, src, dst;
+        type = weightVector[dist1.nextInt(TotalWeight)];
+        src = dst = dist2.nextInt(numNodes);
+        while (src == dst) {
+            dst = dist2.nextInt(numNodes);
         }
+        double holdingTime;
+        //verifica se ha o atributo fileSizeValues, que indica que e utilizado esquema de batch
+		if (fileSizeValues){
+			double fileSize = dist2.nextDoubleInTheInterval(minSize[id], maxSize[id]);
+			double rateInGbps = ocInGigaBits(callsTypesInfo[type].getRate());
+			holdingTime = (((fileSize)/rateInGbps)*8);
+	    } else {
+            holdingTime = dist4.nextExponential(callsTypesInfo[type].getHoldingTime());
+	    }
+        Flow newFLow = new Flow(id, src, dst, time, callsTypesInfo[type].getRate(), holdingTime, callsTypesInfo[type].getCOS(), time+(holdingTime*0.5));
+        Event event;
+        event = new FlowArrivalEvent(time, newFLow);
+        time += dist3.nextExponential(meanArrivalTime);
+        events.addEvent(event);
+        event = new FlowDepartureEvent(time + holdingTime, id, newFLow);
+        events.addEvent(event);
+        id++;
+        return true;
     }
     
     /**
@@ -21,8 +21,7 @@ public class VirtualTopology {
     private int adjMatrixSize;
     private Map<Long, LightPath> lightPaths;
     private PhysicalTopology pt;
-    private Tracer tr = Tracer.getTracerObject();
-//    private MyStatistics st = MyStatistics.getMyStatisticsObject();
+    private Tracer tr;
     
     private static class LightPathSort implements Comparator<LightPath> {
 
@@ -43,11 +42,27 @@ public class VirtualTopology {
      * @param xml file that contains all simulation information
      * @param pt Physical Topology of the network
      */
-    @SuppressWarnings("unchecked")
     public VirtualTopology(Element xml, PhysicalTopology pt) {
+        this(xml, pt, Tracer.getTracerObject());
+    }
+    
+    /**
+     * Creates a new VirtualTopology object over the physical topology of a
+     * simulation run.
+     * 
+     * @param xml file that contains all simulation information
+     * @param context the simulation run
+     */
+    public VirtualTopology(Element xml, SimulationContext context) {
+        this(xml, context.getPhysicalTopology(), context.getTracer());
+    }
+    
+    @SuppressWarnings("unchecked")
+    private VirtualTopology(Element xml, PhysicalTopology pt, Tracer tr) {
         int nodes, lightpaths;
 
         lightPaths = new HashMap<Long, LightPath>();
+        this.tr = tr;
 
         try {
             this.pt = pt;
@@ -80,8 +95,8 @@ public class VirtualTopology {
     }
     
     /**
-     * First, creates a lightpath in the Physical Topology through the createLightpathInPT
-     * function. Then, gets the lightpath's source and destination nodes, so a new
+     * First, reserves the slots of the lightpath in every link of the Physical Topology.
+     * Then, gets the lightpath's source and destination nodes, so a new
      * LightPath object can finally be created and added to the lightPaths HashMap
      * and to the adjMatrix TreeSet.
      *
@@ -90,17 +105,23 @@ public class VirtualTopology {
      * @param modulationLevel the modulation level
      * @return -1 if LightPath object cannot be created, or its unique identifier otherwise
      */
-    public long createLightpath(int[] links, ArrayList<Slot> slotList, int modulationLevel) {
+    public long createLightpath(int[] links, SlotSet slotList, int modulationLevel) {
         LightPath lp;
+        PathReservation reservation;
         int src, dst;
         long id;
         if (links.length < 1) {
             throw (new IllegalArgumentException());
         } else {
-            if (!canCreateLightpath(links, slotList, modulationLevel)) {
+            try {
+                reservation = pt.reservePath(links, slotList);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Illegal argument for areSlotsAvailable");
+                return -1;
+            }
+            if (reservation == null) {
                 return -1;
             }
-            createLightpathInPT(links, slotList);
             src = pt.getLink(links[0]).getSource();
             dst = pt.getLink(links[links.length - 1]).getDestination();
             id = this.nextLightpathID;
@@ -109,11 +130,25 @@ public class VirtualTopology {
             lightPaths.put(nextLightpathID, lp);
             tr.createLightpath(lp);
             this.nextLightpathID++;
+            reservation.commit();
 
             return id;
         }
     }
     
+    /**
+     * Creates a lightpath from a list of slots.
+     *
+     * @param links list of integers that represent the links that form the lightpath
+     * @param slotList list of slots
+     * @param modulationLevel the modulation level
+     * @return -1 if LightPath object cannot be created, or its unique identifier otherwise
+     * @see #createLightpath(int[], SlotSet, int)
+     */
+    public long createLightpath(int[] links, ArrayList<Slot> slotList, int modulationLevel) {
+        return createLightpath(links, new SlotSet(slotList), modulationLevel);
+    }
+    
     /**
      * First, removes a given lightpath in the Physical Topology through the removeLightpathInPT
      * function. Then, gets the lightpath's source and destination nodes, to remove it 
@@ -133,7 +168,7 @@ public class VirtualTopology {
                 return false;
             }
             lp = lightPaths.get(id);
-            removeLightpathFromPT(lp.getLinks(), lp.getSlotList());
+            pt.releasePath(lp.getLinks(), lp.getSlotList());
             src = lp.getSource();
             dst = lp.getDestination();
 
@@ -195,58 +230,15 @@ public class VirtualTopology {
      * @param modulation modulation level
      * @return true if the lightpath can be created, or false otherwise
      */
-    public boolean canCreateLightpath(int[] links, ArrayList<Slot> slotList, int modulation) {
+    public boolean canCreateLightpath(int[] links, SlotSet slotList, int modulation) {
         try {
-	        for (int i = 0; i < links.length; i++) {
-	            if (!pt.getLink(links[i]).areSlotsAvailable(slotList, modulation)) {
-	                return false;
-	            }
-	        }
-	        for (int i = 0; i < links.length; i++) {
-	        	for (Slot slot : slotList) {
-	        		if (pt.getLink(links[i]).getNoise(slot)==0) {
-	        			//TODO
-			        }
-				}
-		        
-	        }
+            return pt.canReservePath(links, slotList);
         } catch (IllegalArgumentException e){
 			System.out.println("Illegal argument for areSlotsAvailable");
 			return false;
 		}
-       
-       
-        return true;
-    }
-    
-    /**
-     * Reserves, in the physical topology, the resources a given lightpath needs:
-     * links, wavelengths and wavelength converters (if necessary).
-     * 
-     * @param links list of integers that represent the links that form the lightpath 
-     * @param firstSlot list of wavelength values used in the lightpath links
-     */
-    private void createLightpathInPT(int[] links, ArrayList<Slot> slotList) {
-        for (int i = 0; i < links.length; i++) {
-            pt.getLink(links[i]).reserveSlots(slotList);
-        }
     }
     
-    /**
-     * Releases, in the physical topology, the resources a given lightpath was using:
-     * links, wavelengths and wavelength converters (if necessary).
-     * 
-     * @param links list of integers that represent the links that form the lightpath
-     * @param firstSlot list of wavelength values used in the lightpath links
-     */
-    private void removeLightpathFromPT(int[] links, ArrayList<Slot> slotList) {
-        for (int i = 0; i < links.length; i++) {
-            pt.getLink(links[i]).releaseSlots(slotList);
-        }
-    }
-    
-
-    
     /**
      * Prints all lightpaths belonging to the Virtual Topology.
      * 
@@ -23,6 +23,15 @@ public class DataSet {
 		this.dimension = dimension;
 	}
 
+	/**
+	 * Gets the dimension of the dots.
+	 *
+	 * @return the dimension
+	 */
+	public int getDimension() {
+		return dimension;
+	}
+
 	/**
 	 * Gets the number of dots.
 	 *
@@ -71,6 +80,17 @@ public class DataSet {
 		}
 	}
 	
+	/**
+	 * Adds all dots of another data set, in the order they were added to it.
+	 *
+	 * @param dataSet the data set whose dots will be added
+	 */
+	public void addDots(DataSet dataSet) {
+		for (double[] dot : dataSet.dots) {
+			addDot(dot);
+		}
+	}
+	
 	/**
 	 * Dots sum.
 	 *
@@ -39,6 +39,15 @@ public class Graph {
 		return name;
 	}
 
+	/**
+	 * Gets the output dots file name.
+	 *
+	 * @return the dots file name
+	 */
+	public String getDotsFileName() {
+		return dotsFileName;
+	}
+
 	/**
 	 * Write dots to file.
 	 */
@@ -1,18 +1,16 @@
 package flexgridsim.rsa;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-
 import org.w3c.dom.Element;
 
 import flexgridsim.Flow;
 import flexgridsim.LightPath;
 import flexgridsim.PhysicalTopology;
-import flexgridsim.Slot;
+import flexgridsim.SimulationContext;
+import flexgridsim.SlotSet;
 import flexgridsim.TrafficGenerator;
 import flexgridsim.VirtualTopology;
-import flexgridsim.util.ConnectedComponent;
-import flexgridsim.util.KShortestPaths;
+import flexgridsim.util.PathSpectrum;
+import flexgridsim.util.RegionExtractor;
 import flexgridsim.util.WeightedGraph;
 
 /**
@@ -25,43 +23,35 @@ public class ImageRCSA implements RSA {
 	protected VirtualTopology vt;
 	protected ControlPlaneForRSA cp;
 	protected WeightedGraph graph;
+	protected PathSpectrum pathSpectrum;
+	protected RegionExtractor regions;
+	protected int policy;
 	
 	public void simulationInterface(Element xml, PhysicalTopology pt,
-			VirtualTopology vt, ControlPlaneForRSA cp, TrafficGenerator traffic) {
+			VirtualTopology vt, ControlPlaneForRSA cp, TrafficGenerator traffic, SimulationContext context) {
 		this.pt = pt;
 		this.vt = vt;
 		this.cp = cp;
 		this.graph = pt.getWeightedGraph();
+		this.pathSpectrum = new PathSpectrum(pt.getCores(), pt.getNumSlots());
+		this.regions = new RegionExtractor();
+		this.policy = RegionExtractor.LOWEST_INDEX;
+		if (xml.hasAttribute("policy")) {
+			this.policy = RegionExtractor.getPolicy(xml.getAttribute("policy"));
+		}
 	}
 
 	public void flowArrival(Flow flow) {
 		int demandInSlots = (int) Math.ceil(flow.getRate() / (double) pt.getSlotCapacity());
-		KShortestPaths kShortestPaths = new KShortestPaths();
-		int[][] kPaths = kShortestPaths.dijkstraKShortestPaths(graph, flow.getSource(), flow.getDestination(), 5);
-		boolean[][] spectrum = new boolean[pt.getCores()][pt.getNumSlots()];
+		int[][] kPaths = pt.getPathCache().getNodePaths(flow.getSource(), flow.getDestination());
+		int[][] kLinks = pt.getPathCache().getLinkPaths(flow.getSource(), flow.getDestination());
 		
 		for (int k = 0; k < kPaths.length; k++) {
-			for (int i = 0; i < spectrum.length; i++) {
-				for (int j = 0; j < spectrum[i].length; j++) {
-					spectrum[i][j]=true;
-				}
-			}
-			for (int i = 0; i < kPaths[k].length-1; i++) {
-				imageAnd(pt.getLink(kPaths[k][i], kPaths[k][i+1]).getSpectrum(), spectrum, spectrum);
-			}
-			
-			//printSpectrum(spectrum);
-			ConnectedComponent cc = new ConnectedComponent();
-			HashMap<Integer,ArrayList<Slot>> listOfRegions = cc.listOfRegions(spectrum);
-			
-			if (listOfRegions.isEmpty()){
+			if (!pathSpectrum.intersect(pt, kLinks[k])) {
 				continue;
 			}
-			int[] links = new int[kPaths[k].length - 1];
-			for (int j = 0; j < kPaths[k].length - 1; j++) {
-				links[j] = pt.getLink(kPaths[k][j], kPaths[k][j + 1]).getID();
-			}
-			if (fitConnection(listOfRegions, demandInSlots, links, flow))
+			SlotSet slotList = regions.extract(pathSpectrum, demandInSlots, policy);
+			if (slotList != null && establishConnection(kLinks[k], slotList, 0, flow))
 				return;
 			
 		}
@@ -70,28 +60,6 @@ public class ImageRCSA implements RSA {
 	}
 
 	
-	/**
-	 * @param listOfRegions
-	 * @param demandInSlots
-	 * @param links
-	 * @param flow
-	 * @return given a list of rectangles and a demand, the algorithm tries to fit the connector into the spectra
-	 */
-	public boolean fitConnection(HashMap<Integer,ArrayList<Slot>> listOfRegions, int demandInSlots, int[] links, Flow flow){
-		ArrayList<Slot> fittedSlotList = new ArrayList<Slot>();
-		for (Integer key : listOfRegions.keySet()) {
-		    if (listOfRegions.get(key).size()>=demandInSlots){
-		    	for (int i = 0; i < demandInSlots; i++) {
-		    		fittedSlotList.add(listOfRegions.get(key).get(i));
-				}
-		    	if (establishConnection(links, fittedSlotList, 0, flow)){
-					return true;
-				}
-		    }
-		}
-		return false;
-	}
-	
 	/**
 	 * @param links
 	 * @param slotList
@@ -99,7 +67,7 @@ public class ImageRCSA implements RSA {
 	 * @param flow
 	 * @return true if the connection was successfully established; false otherwise
 	 */
-	public boolean establishConnection(int[] links, ArrayList<Slot> slotList, int modulation, Flow flow){
+	public boolean establishConnection(int[] links, SlotSet slotList, int modulation, Flow flow){
 		long id = vt.createLightpath(links, slotList ,0);
 		if (id >= 0) {
 			LightPath lps = vt.getLightpath(id);
@@ -111,14 +79,6 @@ public class ImageRCSA implements RSA {
 			return false;
 		}
 	}
-		
-	private void imageAnd(boolean[][] img1, boolean[][] img2, boolean[][] res){
-		for (int i = 0; i < res.length; i++) {
-			for (int j = 0; j < res[0].length; j++) {
-				res[i][j] = img1[i][j] & img2[i][j];
-			}
-		}
-	}
 
 	
 	public void flowDeparture(Flow flow) {
@@ -4,6 +4,7 @@ import org.w3c.dom.Element;
 
 import flexgridsim.Flow;
 import flexgridsim.PhysicalTopology;
+import flexgridsim.SimulationContext;
 import flexgridsim.TrafficGenerator;
 import flexgridsim.VirtualTopology;
 import flexgridsim.util.WeightedGraph;
@@ -19,7 +20,7 @@ public class RCSA implements RSA{
 	protected WeightedGraph graph;
 	@Override
 	public void simulationInterface(Element xml, PhysicalTopology pt,
-			VirtualTopology vt, ControlPlaneForRSA cp, TrafficGenerator traffic) {
+			VirtualTopology vt, ControlPlaneForRSA cp, TrafficGenerator traffic, SimulationContext context) {
 		this.pt = pt;
 		this.vt = vt;
 		this.cp = cp;
@@ -29,8 +29,9 @@ public interface RSA {
      * @param vt the Virtual Topology object
      * @param cp the Control Plane object
      * @param traffic the traffic
+     * @param context the simulation run, with its statistics, tracer and event scheduler
      */
-    public void simulationInterface(Element xml, PhysicalTopology pt, VirtualTopology vt, ControlPlaneForRSA cp, TrafficGenerator traffic);
+    public void simulationInterface(Element xml, PhysicalTopology pt, VirtualTopology vt, ControlPlaneForRSA cp, TrafficGenerator traffic, SimulationContext context);
 
     /**
      * Flow arrival.
@@ -1,224 +1,360 @@
 package flexgridsim.util;
 
-import java.awt.Dimension;
-import java.util.ArrayList;
-import java.util.HashMap;
-
-import flexgridsim.Slot;
-
 /**
- * Use row-by-row labeling algorithm to label connected components The algorithm
- * makes two passes over the image: one pass to record equivalences and assign
- * temporary labels and the second to replace each temporary label by the label
- * of its equivalence class. [Reference] Linda G. Shapiro, Computer Vision:
+ * Labels the connected components of the free cells of a spectrum, where each
+ * core is a row and each slot a column, and two free cells are connected if
+ * they are side by side in the same row or in the same column.
+ *
+ * The labeling works on runs of contiguous free cells instead of single cells:
+ * the runs of each row are read from the words of the spectrum, each run is
+ * joined with the runs of the row above that overlap it, and a union-find over
+ * the runs gives the components. [Reference] Linda G. Shapiro, Computer Vision:
  * Theory and Applications. (3.4 Connected Components Labeling) Rosenfeld and
  * Pfaltz (1966)
+ *
+ * The cells and bounding box of each set of runs are kept in its root, the
+ * lowest run of the set, as the rows are labeled, so a subclass labeling one
+ * row at a time knows a region as soon as the rows below no longer touch it.
+ * At the end, regions are numbered from 0 in the order of their first cell,
+ * row by row, and each one has its number of cells, its bounding box and the
+ * list of its runs in row order. Every result is kept in arrays that grow with the largest
+ * image labeled and are reused by the next call, so a ConnectedComponent must
+ * not be shared between threads.
  */
 public class ConnectedComponent {
-	final int MAX_LABELS = 80000;
-	int next_label = 1;
+	protected int rows;
+	protected int columns;
+	protected int numRuns;
+	protected int[] rowFirstRun = new int[0];
+	protected int[] runRow = new int[0];
+	protected int[] runStart;
+	protected int[] runEnd;
+	private int[] runRegion;
+	private int[] nextRun;
+	private int[] parent;
+	// Cells and bounding box of each set of runs, kept in its root
+	protected int[] cells;
+	protected int[] rowStart;
+	protected int[] rowEnd;
+	protected int[] colStart;
+	protected int[] colEnd;
+	private int numRegions;
+	private int[] regionRoot;
+	private int[] lastRun;
 
 	/**
+	 * Labels the free cells of every core of a spectrum.
+	 *
 	 * @param image
-	 * @return a map of lists of pixels
-	 */
-	public HashMap<Integer, ArrayList<Slot>> listOfRegions(boolean[][] image) {
-		HashMap<Integer, ArrayList<Slot>> res = new HashMap<Integer, ArrayList<Slot>>();
-		// System.out.println("Image " +image.length+","+image[0].length);
-		int resMatrix[][] = componentLabeling(image);
-		// System.out.println("Res " +resMatrix.length+","+resMatrix[0].length);
-		for (int i = 0; i < resMatrix.length; i++) {
-			for (int j = 0; j < resMatrix[i].length; j++) {
-				if (resMatrix[i][j] != 1) {
-					if (!res.containsKey(resMatrix[i][j])) {
-						res.put(resMatrix[i][j], new ArrayList<Slot>());
-					}
-					res.get(resMatrix[i][j]).add(new Slot(i, j));
-				}
-			}
+	 *            the spectrum, where each free slot is a cell to be labeled
+	 * @return the number of regions
+	 */
+	public int label(SpectrumView image) {
+		start(image);
+		for (int r = 0; r < rows; r++) {
+			labelRow(image, r);
 		}
-		return res;
+		return finish();
 	}
 
 	/**
+	 * Starts labeling an image, whose rows must then be given to labelRow()
+	 * in order.
+	 *
 	 * @param image
-	 * @return matrix containing labels
-	 */
-	public int[][] componentLabeling(boolean[][] image) {
-		int rows = image.length;
-		int columns = image[0].length;
-		int[] integerImage = new int[image.length * image[0].length];
-		for (int i = 0; i < image.length; i++) {
-			for (int j = 0; j < image[0].length; j++) {
-				if (image[i][j] == true) {
-					integerImage[i * image[i].length + j] = 0;
+	 *            the spectrum
+	 */
+	protected void start(SpectrumView image) {
+		rows = image.getCores();
+		columns = image.getSlots();
+		ensureCapacity();
+		numRuns = 0;
+		numRegions = 0;
+	}
+
+	/**
+	 * Reads the runs of a row and joins them with the runs of the row above.
+	 * Afterwards, a set of runs whose last row is above r is a complete
+	 * region.
+	 *
+	 * @param image
+	 *            the spectrum
+	 * @param r
+	 *            the row
+	 */
+	protected void labelRow(SpectrumView image, int r) {
+		rowFirstRun[r] = numRuns;
+		readRuns(image, r);
+		rowFirstRun[r + 1] = numRuns;
+		if (r > 0) {
+			joinRows(rowFirstRun[r - 1], rowFirstRun[r], numRuns);
+		}
+	}
+
+	/**
+	 * Numbers the regions, in the order of their first run, and links the runs
+	 * of each region.
+	 *
+	 * @return the number of regions
+	 */
+	protected int finish() {
+		numRegions = 0;
+		for (int i = 0; i < numRuns; i++) {
+			int root = find(i);
+			int region;
+			if (root == i) {
+				region = numRegions++;
+				regionRoot[region] = i;
+			} else {
+				region = runRegion[root];
+				nextRun[lastRun[region]] = i;
+			}
+			runRegion[i] = region;
+			nextRun[i] = -1;
+			lastRun[region] = i;
+		}
+		return numRegions;
+	}
+
+	/**
+	 * Grows the buffers to hold every run of the current image, which has at
+	 * most one run for every two cells of a row.
+	 */
+	private void ensureCapacity() {
+		if (rowFirstRun.length < rows + 1) {
+			rowFirstRun = new int[rows + 1];
+		}
+		int maxRuns = rows * ((columns + 1) / 2);
+		if (runRow.length < maxRuns) {
+			runRow = new int[maxRuns];
+			runStart = new int[maxRuns];
+			runEnd = new int[maxRuns];
+			runRegion = new int[maxRuns];
+			nextRun = new int[maxRuns];
+			parent = new int[maxRuns];
+			cells = new int[maxRuns];
+			rowStart = new int[maxRuns];
+			rowEnd = new int[maxRuns];
+			colStart = new int[maxRuns];
+			colEnd = new int[maxRuns];
+			regionRoot = new int[maxRuns];
+			lastRun = new int[maxRuns];
+		}
+	}
+
+	/**
+	 * Appends the runs of free cells of a row, a word at a time.
+	 */
+	private void readRuns(SpectrumView image, int r) {
+		int open = -1;
+		for (int w = 0; w < image.getWordsPerCore(); w++) {
+			long x = image.getFreeWord(r, w);
+			int carried = open;
+			open = -1;
+			while (x != 0) {
+				int start = Long.numberOfTrailingZeros(x);
+				int end = start + Long.numberOfTrailingZeros(~(x >>> start));
+				int run;
+				if (start == 0 && carried >= 0) {
+					// The run goes on from the previous word
+					run = carried;
+					cells[run] += end;
+				} else {
+					run = numRuns++;
+					runRow[run] = r;
+					runStart[run] = (w << 6) + start;
+					parent[run] = run;
+					cells[run] = end - start;
+					rowStart[run] = r;
+					rowEnd[run] = r;
+					colStart[run] = runStart[run];
+				}
+				runEnd[run] = (w << 6) + end;
+				colEnd[run] = runEnd[run] - 1;
+				if (end == 64) {
+					open = run;
+					x = 0;
 				} else {
-					integerImage[i * image[i].length + j] = 1;
+					x &= -1L << end;
 				}
 			}
 		}
-		int res[] = compactLabeling(integerImage, new Dimension(rows, columns), true);
-		int resMatrix[][] = new int[rows][columns];
-		int j = 0;
-		int k = 0;
-		for (int i = 0; i < res.length; i++) {
-			resMatrix[k][j] = res[i];
-			j++;
-			if (j == columns) {
-				k++;
-				j = 0;
+	}
+
+	/**
+	 * Joins the runs of a row with the overlapping runs of the row above.
+	 */
+	private void joinRows(int above, int first, int end) {
+		int i = above;
+		int j = first;
+		while (i < first && j < end) {
+			if (runStart[i] < runEnd[j] && runStart[j] < runEnd[i]) {
+				union(i, j);
+			}
+			if (runEnd[i] < runEnd[j]) {
+				i++;
+			} else {
+				j++;
 			}
+		}
+	}
 
+	/**
+	 * Finds the root of the set of a run, which is its lowest run.
+	 *
+	 * @param x
+	 *            a run
+	 * @return the root run
+	 */
+	protected int find(int x) {
+		while (parent[x] != x) {
+			parent[x] = parent[parent[x]];
+			x = parent[x];
 		}
-		return resMatrix;
+		return x;
 	}
 
 	/**
-	 * label and re-arrange the labels to make the numbers of label continous
-	 * 
-	 * @param image
-	 * @param d
-	 * 
-	 * @param zeroAsBg
-	 *            Leaving label 0 untouched
-	 * @return the labels
-	 */
-	public int[] compactLabeling(int[] image, Dimension d, boolean zeroAsBg) {
-		// label first
-		int[] label = labeling(image, d, zeroAsBg);
-		int[] stat = new int[next_label + 1];
-		for (int i = 0; i < image.length; i++) {
-			if (label[i] > next_label)
-				System.err.println("bigger label than next_label found!");
-			stat[label[i]]++;
+	 * Joins the sets of two runs, keeping the lowest run as the root.
+	 */
+	private void union(int x, int y) {
+		x = find(x);
+		y = find(y);
+		if (x == y) {
+			return;
 		}
+		if (y < x) {
+			int t = x;
+			x = y;
+			y = t;
+		}
+		parent[y] = x;
+		cells[x] += cells[y];
+		rowStart[x] = Math.min(rowStart[x], rowStart[y]);
+		rowEnd[x] = Math.max(rowEnd[x], rowEnd[y]);
+		colStart[x] = Math.min(colStart[x], colStart[y]);
+		colEnd[x] = Math.max(colEnd[x], colEnd[y]);
+	}
+
+	/**
+	 * @return the number of regions found by the last labeling
+	 */
+	public int getNumRegions() {
+		return numRegions;
+	}
 
-		stat[0] = 0; // label 0 will be mapped to 0
-						// whether 0 is background or not
-		int j = 1;
-		for (int i = 1; i < stat.length; i++) {
-			if (stat[i] != 0)
-				stat[i] = j++;
+	/**
+	 * Gets the region of a cell.
+	 *
+	 * @param row
+	 *            row of the cell
+	 * @param column
+	 *            column of the cell
+	 * @return the region of the cell, or -1 if the cell is not free
+	 */
+	public int getRegion(int row, int column) {
+		int lo = rowFirstRun[row];
+		int hi = rowFirstRun[row + 1] - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (runEnd[mid] <= column) {
+				lo = mid + 1;
+			} else if (runStart[mid] > column) {
+				hi = mid - 1;
+			} else {
+				return runRegion[mid];
+			}
 		}
+		return -1;
+	}
 
-		// System.out.println("From " + next_label + " to " + (j - 1) + "
-		// regions");
-		next_label = j - 1;
-		for (int i = 0; i < image.length; i++)
-			label[i] = stat[label[i]];
-		return label;
+	/**
+	 * @param region
+	 *            the region
+	 * @return the number of cells of the region
+	 */
+	public int getCells(int region) {
+		return cells[regionRoot[region]];
 	}
 
 	/**
-	 * @return the max label in the labeling process. the range of labels is
-	 *         [0..max_label]
+	 * @param region
+	 *            the region
+	 * @return first row of the bounding box of the region
 	 */
-	public int getMaxLabel() {
-		return next_label;
+	public int getRowStart(int region) {
+		return rowStart[regionRoot[region]];
 	}
 
 	/**
-	 * Label the connect components If label 0 is background, then label 0 is
-	 * untouched; If not, label 0 may be reassigned [Requires] 0 is treated as
-	 * background
-	 * 
-	 * @param image
-	 *            data
-	 * @param d
-	 *            dimension of the data
-	 * @param zeroAsBg
-	 *            label 0 is treated as background, so be ignored
-	 * @return the labels
-	 */
-	public int[] labeling(int[] image, Dimension d, boolean zeroAsBg) {
-		int w = d.width, h = d.height;
-		int[] rst = new int[w * h];
-		int[] parent = new int[MAX_LABELS];
-		int[] labels = new int[MAX_LABELS];
-		// region label starts from 1;
-		// this is required as union-find data structure
-		int next_region = 1;
-		for (int y = 0; y < h; ++y) {
-			for (int x = 0; x < w; ++x) {
-				if (image[y * w + x] == 0 && zeroAsBg)
-					continue;
-				int k = 0;
-				boolean connected = false;
-				// if connected to the left
-				if (x > 0 && image[y * w + x - 1] == image[y * w + x]) {
-					k = rst[y * w + x - 1];
-					connected = true;
-				}
-				// if connected to the up
-				if (y > 0 && image[(y - 1) * w + x] == image[y * w + x]
-						&& (connected = false || image[(y - 1) * w + x] < k)) {
-					k = rst[(y - 1) * w + x];
-					connected = true;
-				}
-				if (!connected) {
-					k = next_region;
-					next_region++;
-				}
+	 * @param region
+	 *            the region
+	 * @return last row of the bounding box of the region
+	 */
+	public int getRowEnd(int region) {
+		return rowEnd[regionRoot[region]];
+	}
 
-				if (k >= MAX_LABELS) {
-					System.err.println("maximum number of labels reached. " + "increase MAX_LABELS and recompile.");
-					System.exit(1);
-				}
-				rst[y * w + x] = k;
-				// if connected, but with different label, then do union
-				if (x > 0 && image[y * w + x - 1] == image[y * w + x] && rst[y * w + x - 1] != k)
-					uf_union(k, rst[y * w + x - 1], parent);
-				if (y > 0 && image[(y - 1) * w + x] == image[y * w + x] && rst[(y - 1) * w + x] != k)
-					uf_union(k, rst[(y - 1) * w + x], parent);
-			}
-		}
+	/**
+	 * @param region
+	 *            the region
+	 * @return first column of the bounding box of the region
+	 */
+	public int getColStart(int region) {
+		return colStart[regionRoot[region]];
+	}
 
-		// Begin the second pass. Assign the new labels
-		// if 0 is reserved for background, then the first available label is 1
-		next_label = 1;
-		for (int i = 0; i < w * h; i++) {
-			if (image[i] != 0 || !zeroAsBg) {
-				rst[i] = uf_find(rst[i], parent, labels);
-				// The labels are from 1, if label 0 should be considered, then
-				// all the label should minus 1
-				if (!zeroAsBg)
-					rst[i]--;
-			}
-		}
-		next_label--; // next_label records the max label
-		if (!zeroAsBg)
-			next_label--;
+	/**
+	 * @param region
+	 *            the region
+	 * @return last column of the bounding box of the region
+	 */
+	public int getColEnd(int region) {
+		return colEnd[regionRoot[region]];
+	}
 
-		// System.out.println(next_label + " regions");
+	/**
+	 * @param region
+	 *            the region
+	 * @return the first run of the region
+	 */
+	public int getFirstRun(int region) {
+		return regionRoot[region];
+	}
 
-		return rst;
+	/**
+	 * @param run
+	 *            a run
+	 * @return the next run of the same region, or -1 if it is the last one
+	 */
+	public int getNextRun(int run) {
+		return nextRun[run];
 	}
 
-	void uf_union(int x, int y, int[] parent) {
-		while (parent[x] > 0)
-			x = parent[x];
-		while (parent[y] > 0)
-			y = parent[y];
-		if (x != y) {
-			if (x < y)
-				parent[x] = y;
-			else
-				parent[y] = x;
-		}
+	/**
+	 * @param run
+	 *            a run
+	 * @return the row of the run
+	 */
+	public int getRunRow(int run) {
+		return runRow[run];
 	}
 
 	/**
-	 * This function is called to return the root label Returned label starts
-	 * from 1 because label array is inited to 0 as first [Effects] label array
-	 * records the new label for every root
+	 * @param run
+	 *            a run
+	 * @return the first column of the run
 	 */
-	int uf_find(int x, int[] parent, int[] label)
+	public int getRunStart(int run) {
+		return runStart[run];
+	}
 
-	{
-		while (parent[x] > 0)
-			x = parent[x];
-		if (label[x] == 0)
-			label[x] = next_label++;
-		return label[x];
+	/**
+	 * @param run
+	 *            a run
+	 * @return the number of cells of the run
+	 */
+	public int getRunLength(int run) {
+		return runEnd[run] - runStart[run];
 	}
-}
\ No newline at end of file
+}
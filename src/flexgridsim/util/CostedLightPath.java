@@ -1,9 +1,7 @@
 package flexgridsim.util;
 
-import java.util.ArrayList;
-
 import flexgridsim.LightPath;
-import flexgridsim.Slot;
+import flexgridsim.SlotSet;
 
 /**
  * The Class CostedLightPath.
@@ -23,7 +21,7 @@ public class CostedLightPath extends LightPath {
 	 * @param cost the cost
 	 */
 	public CostedLightPath(long id, int src, int dst, int[] links,
-			ArrayList<Slot> slotList, int modulationLevel, double cost) {
+			SlotSet slotList, int modulationLevel, double cost) {
 		super(id, src, dst, links, slotList, modulationLevel);
 		this.cost = cost;
 	}
@@ -0,0 +1,273 @@
+package flexgridsim.util;
+
+/**
+ * A directed graph in compressed sparse row form. The edges leaving each node
+ * are kept together, sorted by target, in arrays of targets, weights and link
+ * ids indexed by edge, so the neighbors of a node are visited in time
+ * proportional to its degree and the memory grows with the number of edges,
+ * not with the square of the number of nodes.
+ *
+ * The edges of node v are the indexes from getEdgeStart(v) to
+ * getEdgeEnd(v) - 1. A CsrGraph never changes after it is created, so it may
+ * be shared by several simulations.
+ *
+ * @author pedrom
+ */
+public class CsrGraph {
+
+	private int nodes;
+	private int[] start;
+	private int[] target;
+	private double[] weight;
+	private int[] link;
+	private boolean hasLinks;
+	private int[][] neighbors;
+	private int[][] neighborLinks;
+
+	/**
+	 * Creates a new CsrGraph from a list of edges.
+	 *
+	 * @param nodes
+	 *            number of nodes
+	 * @param sources
+	 *            source node of each edge
+	 * @param targets
+	 *            target node of each edge
+	 * @param weights
+	 *            weight of each edge
+	 * @param links
+	 *            id of the link of each edge, or null if the edges are not
+	 *            links of a topology
+	 */
+	public CsrGraph(int nodes, int[] sources, int[] targets, double[] weights, int[] links) {
+		int edges = sources.length;
+		if (targets.length != edges || weights.length != edges || (links != null && links.length != edges)) {
+			throw (new IllegalArgumentException());
+		}
+		this.nodes = nodes;
+		this.start = new int[nodes + 1];
+		for (int e = 0; e < edges; e++) {
+			if (sources[e] < 0 || sources[e] >= nodes || targets[e] < 0 || targets[e] >= nodes) {
+				throw (new IllegalArgumentException());
+			}
+			start[sources[e] + 1]++;
+		}
+		for (int v = 0; v < nodes; v++) {
+			start[v + 1] += start[v];
+		}
+		this.target = new int[edges];
+		this.weight = new double[edges];
+		this.link = new int[edges];
+		this.hasLinks = links != null;
+		int[] next = new int[nodes];
+		System.arraycopy(start, 0, next, 0, nodes);
+		for (int e = 0; e < edges; e++) {
+			int i = next[sources[e]]++;
+			// Insertion sort by target; rows are short
+			while (i > start[sources[e]] && target[i - 1] > targets[e]) {
+				target[i] = target[i - 1];
+				weight[i] = weight[i - 1];
+				link[i] = link[i - 1];
+				i--;
+			}
+			target[i] = targets[e];
+			weight[i] = weights[e];
+			link[i] = links == null ? -1 : links[e];
+		}
+		this.neighbors = new int[nodes][];
+		this.neighborLinks = new int[nodes][];
+		for (int v = 0; v < nodes; v++) {
+			int degree = start[v + 1] - start[v];
+			neighbors[v] = new int[degree];
+			neighborLinks[v] = new int[degree];
+			System.arraycopy(target, start[v], neighbors[v], 0, degree);
+			System.arraycopy(link, start[v], neighborLinks[v], 0, degree);
+		}
+	}
+
+	/**
+	 * Creates a new CsrGraph with the edges of a weighted graph. The edges have
+	 * no link ids.
+	 *
+	 * @param g
+	 *            the weighted graph
+	 */
+	public CsrGraph(WeightedGraph g) {
+		this(g.getNumNodes(), edgeSources(g), edgeTargets(g), edgeWeights(g), null);
+	}
+
+	private static int[] edgeSources(WeightedGraph g) {
+		int[] sources = new int[g.getNumEdges()];
+		int e = 0;
+		for (int u = 0; u < g.getNumNodes(); u++) {
+			for (int i = 0; i < g.neighbors(u).length; i++) {
+				sources[e++] = u;
+			}
+		}
+		return sources;
+	}
+
+	private static int[] edgeTargets(WeightedGraph g) {
+		int[] targets = new int[g.getNumEdges()];
+		int e = 0;
+		for (int u = 0; u < g.getNumNodes(); u++) {
+			for (int v : g.neighbors(u)) {
+				targets[e++] = v;
+			}
+		}
+		return targets;
+	}
+
+	private static double[] edgeWeights(WeightedGraph g) {
+		double[] weights = new double[g.getNumEdges()];
+		int e = 0;
+		for (int u = 0; u < g.getNumNodes(); u++) {
+			for (int v : g.neighbors(u)) {
+				weights[e++] = g.getWeight(u, v);
+			}
+		}
+		return weights;
+	}
+
+	/**
+	 * Gets the number of nodes.
+	 *
+	 * @return the number of nodes
+	 */
+	public int getNumNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Gets the number of edges.
+	 *
+	 * @return the number of edges
+	 */
+	public int getNumEdges() {
+		return target.length;
+	}
+
+	/**
+	 * Gets the number of edges leaving a node.
+	 *
+	 * @param v
+	 *            the node
+	 * @return the out-degree of the node
+	 */
+	public int getDegree(int v) {
+		return start[v + 1] - start[v];
+	}
+
+	/**
+	 * Gets the index of the first edge leaving a node.
+	 *
+	 * @param v
+	 *            the node
+	 * @return the index of the edge
+	 */
+	public int getEdgeStart(int v) {
+		return start[v];
+	}
+
+	/**
+	 * Gets the index after the last edge leaving a node.
+	 *
+	 * @param v
+	 *            the node
+	 * @return the index after the edges of the node
+	 */
+	public int getEdgeEnd(int v) {
+		return start[v + 1];
+	}
+
+	/**
+	 * Gets the target node of an edge.
+	 *
+	 * @param e
+	 *            index of the edge
+	 * @return the target node
+	 */
+	public int getTarget(int e) {
+		return target[e];
+	}
+
+	/**
+	 * Gets the weight of an edge.
+	 *
+	 * @param e
+	 *            index of the edge
+	 * @return the weight
+	 */
+	public double getWeight(int e) {
+		return weight[e];
+	}
+
+	/**
+	 * Gets the id of the link of an edge.
+	 *
+	 * @param e
+	 *            index of the edge
+	 * @return the link id, or -1 if the graph has no link ids
+	 */
+	public int getLink(int e) {
+		return link[e];
+	}
+
+	/**
+	 * Says whether the edges carry the ids of the links of a topology.
+	 *
+	 * @return true if the graph was created with link ids
+	 */
+	public boolean hasLinks() {
+		return hasLinks;
+	}
+
+	/**
+	 * Finds the edge between two nodes.
+	 *
+	 * @param u
+	 *            the source node
+	 * @param v
+	 *            the target node
+	 * @return the index of the edge, or -1 if there is none
+	 */
+	public int findEdge(int u, int v) {
+		int lo = start[u];
+		int hi = start[u + 1] - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (target[mid] < v) {
+				lo = mid + 1;
+			} else if (target[mid] > v) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Retrieves the neighbors of a node, in increasing order. The array is
+	 * shared and must not be changed.
+	 *
+	 * @param v
+	 *            the node
+	 * @return the targets of the edges leaving the node
+	 */
+	public int[] neighbors(int v) {
+		return neighbors[v];
+	}
+
+	/**
+	 * Retrieves the ids of the links to the neighbors of a node, in the same
+	 * order of neighbors(). The array is shared and must not be changed.
+	 *
+	 * @param v
+	 *            the node
+	 * @return the link ids of the edges leaving the node
+	 */
+	public int[] getNeighborLinks(int v) {
+		return neighborLinks[v];
+	}
+}
@@ -4,8 +4,6 @@
  */
 package flexgridsim.util;
 
-import java.util.ArrayList;
-
 /**
  * Dijkstra's routing algorithm.
  * 
@@ -26,6 +24,9 @@ import java.util.ArrayList;
  * the smallest distance (from the initial node) as the next "current node" and
  * continue from step 3.
  * 
+ * The static methods are kept for compatibility; they run on the HeapDijkstra
+ * workspace of the current thread, which settles the nodes in the same order.
+ * 
  * @author andred
  */
 public class Dijkstra {
@@ -38,36 +39,11 @@ public class Dijkstra {
      * @return the a array of ints representing the path
      */
     public static int[] dijkstra(WeightedGraph G, int s) {
-        final double[] dist = new double[G.size()];  // shortest known distance from "s"
+        HeapDijkstra workspace = HeapDijkstra.getWorkspace(G.size());
+        workspace.search(G, s);
         final int[] pred = new int[G.size()];  // preceding node in path
-        final boolean[] visited = new boolean[G.size()]; // all false initially
-
-        for (int i = 0; i < dist.length; i++) {
-            pred[i] = -1;
-            dist[i] = Integer.MAX_VALUE;
-        }
-        dist[s] = 0;
-
-        for (int i = 0; i < dist.length; i++) {
-            final int next = minVertex(dist, visited);
-//            if (next < 0) {
-//                return pred;
-//            }
-            if (next >= 0) {
-                visited[next] = true;
-
-                // The shortest path to next is dist[next] and via pred[next].
-
-                final int[] n = G.neighbors(next);
-                for (int j = 0; j < n.length; j++) {
-                    final int v = n[j];
-                    final double d = dist[next] + G.getWeight(next, v);
-                    if (dist[v] > d && !G.isEdgeRemoved(next, v)) {
-                        dist[v] = d;
-                        pred[v] = next;
-                    }
-                }
-            }
+        for (int i = 0; i < pred.length; i++) {
+            pred[i] = workspace.getPredecessor(i);
         }
         return pred;  // (ignore pred[s]==0!)
     }
@@ -103,28 +79,9 @@ public class Dijkstra {
      * @return the shortest path, as a vector of integers that represent node coordinates
      */
     public static int[] getShortestPath(WeightedGraph G, int src, int dst) {
-        int x;
-        int[] sp;
-        ArrayList<Integer> path = new ArrayList<Integer>();
-
-        final int[] pred = dijkstra(G, src);
-
-        x = dst;
-
-        while (x != src) {
-            path.add(0, x);
-            x = pred[x];
-            // No path
-            if (x == -1) {
-                return new int[0];
-            }
-        }
-        path.add(0, src);
-        sp = new int[path.size()];
-        for (int i = 0; i < path.size(); i++) {
-            sp[i] = path.get(i);
-        }
-        return sp;
+        HeapDijkstra workspace = HeapDijkstra.getWorkspace(G.size());
+        workspace.search(G, src);
+        return workspace.getPath(src, dst);
     }
     
 }
@@ -0,0 +1,264 @@
+package flexgridsim.util;
+
+import java.util.TreeSet;
+
+/**
+ * Index of the blocks of contiguous free slots of one core of a spectrum. It
+ * answers first-fit, last-fit and best-fit queries for a number of contiguous
+ * slots without scanning the whole core.
+ *
+ * A segment tree keeps, for each range of slots, the longest free run that
+ * starts at its beginning, ends at its end and lies anywhere inside it, which
+ * gives first-fit, last-fit and the largest free block. A sorted set keeps
+ * every free block keyed by its length and first slot, which gives best-fit.
+ * A Fenwick tree counts the free blocks of each length, which tells how many
+ * blocks are at most a given length. All of them are kept up to date by
+ * calling beforeChange() and afterChange() around every reservation or
+ * release of the core.
+ *
+ * @author pedrom
+ */
+public class FreeBlockIndex {
+
+	private SpectrumBitmap spectrum;
+	private int core;
+	private int slots;
+	private int leaves;
+	private int[] prefix;
+	private int[] suffix;
+	private int[] best;
+	private TreeSet<Long> blocks;
+	private int[] lengths;
+	private int freeSlots;
+
+	/**
+	 * Creates a new FreeBlockIndex with the current state of a core.
+	 *
+	 * @param spectrum
+	 *            the spectrum of the link
+	 * @param core
+	 *            index of the core
+	 */
+	public FreeBlockIndex(SpectrumBitmap spectrum, int core) {
+		this.spectrum = spectrum;
+		this.core = core;
+		this.slots = spectrum.getSlots();
+		this.leaves = Integer.highestOneBit(slots);
+		if (leaves < slots) {
+			leaves <<= 1;
+		}
+		this.prefix = new int[2 * leaves];
+		this.suffix = new int[2 * leaves];
+		this.best = new int[2 * leaves];
+		this.blocks = new TreeSet<Long>();
+		this.lengths = new int[slots + 1];
+		afterChange(0, slots - 1);
+	}
+
+	/**
+	 * Must be called before any slot between first and last is reserved or
+	 * released. Removes the free blocks that may change.
+	 *
+	 * @param first
+	 *            index of the first slot that will change
+	 * @param last
+	 *            index of the last slot that will change
+	 */
+	public void beforeChange(int first, int last) {
+		int to = Math.min(last + 1, slots - 1);
+		int s = spectrum.nextFree(core, Math.max(first - 1, 0));
+		if (s > 0 && s <= to && spectrum.isFree(core, s - 1)) {
+			s = spectrum.previousReserved(core, s) + 1;
+		}
+		while (s >= 0 && s <= to) {
+			int end = spectrum.nextReserved(core, s);
+			if (end < 0) {
+				end = slots;
+			}
+			blocks.remove(key(end - s, s));
+			addLength(end - s, -1);
+			s = spectrum.nextFree(core, end);
+		}
+	}
+
+	/**
+	 * Must be called after slots between first and last were reserved or
+	 * released. Adds the free blocks around them and updates the tree.
+	 *
+	 * @param first
+	 *            index of the first slot that changed
+	 * @param last
+	 *            index of the last slot that changed
+	 */
+	public void afterChange(int first, int last) {
+		int to = Math.min(last + 1, slots - 1);
+		int s = spectrum.nextFree(core, Math.max(first - 1, 0));
+		if (s > 0 && s <= to && spectrum.isFree(core, s - 1)) {
+			s = spectrum.previousReserved(core, s) + 1;
+		}
+		while (s >= 0 && s <= to) {
+			int end = spectrum.nextReserved(core, s);
+			if (end < 0) {
+				end = slots;
+			}
+			blocks.add(key(end - s, s));
+			addLength(end - s, 1);
+			s = spectrum.nextFree(core, end);
+		}
+		// Refresh the leaves that changed and their ancestors
+		int lo = first + leaves;
+		int hi = last + leaves;
+		for (int i = lo; i <= hi; i++) {
+			int free = spectrum.isFree(core, i - leaves) ? 1 : 0;
+			prefix[i] = suffix[i] = best[i] = free;
+		}
+		for (int width = 1; lo > 1; width <<= 1) {
+			lo >>>= 1;
+			hi >>>= 1;
+			for (int i = lo; i <= hi; i++) {
+				merge(i, width);
+			}
+		}
+	}
+
+	/**
+	 * Combines the two children of node i, each one covering width slots.
+	 */
+	private void merge(int i, int width) {
+		int l = 2 * i;
+		int r = l + 1;
+		prefix[i] = prefix[l] == width ? width + prefix[r] : prefix[l];
+		suffix[i] = suffix[r] == width ? width + suffix[l] : suffix[r];
+		best[i] = Math.max(Math.max(best[l], best[r]), suffix[l] + prefix[r]);
+	}
+
+	private static long key(int length, int first) {
+		return ((long) length << 32) | first;
+	}
+
+	private void addLength(int length, int delta) {
+		freeSlots += delta * length;
+		for (int i = length; i <= slots; i += i & -i) {
+			lengths[i] += delta;
+		}
+	}
+
+	/**
+	 * Gets the length of the largest block of contiguous free slots.
+	 *
+	 * @return the number of slots of the largest free block
+	 */
+	public int getLargestFreeBlock() {
+		return best[1];
+	}
+
+	/**
+	 * Gets the number of blocks of contiguous free slots.
+	 *
+	 * @return the number of free blocks
+	 */
+	public int getNumberOfFreeBlocks() {
+		return blocks.size();
+	}
+
+	/**
+	 * Gets the number of free slots of the core.
+	 *
+	 * @return the number of free slots
+	 */
+	public int getNumberOfFreeSlots() {
+		return freeSlots;
+	}
+
+	/**
+	 * Counts the blocks of contiguous free slots with at most a given length.
+	 *
+	 * @param length
+	 *            the maximum length of the blocks
+	 * @return the number of free blocks with that length or less
+	 */
+	public int countBlocksUpTo(int length) {
+		int count = 0;
+		for (int i = Math.min(length, slots); i > 0; i -= i & -i) {
+			count += lengths[i];
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the lowest slot where n contiguous free slots start.
+	 *
+	 * @param n
+	 *            number of contiguous slots
+	 * @return the index of the first slot, or -1 if they do not fit
+	 */
+	public int firstFit(int n) {
+		if (n < 1 || best[1] < n) {
+			return -1;
+		}
+		int i = 1;
+		int start = 0;
+		int width = leaves;
+		while (i < leaves) {
+			width >>>= 1;
+			int l = 2 * i;
+			if (best[l] >= n) {
+				i = l;
+			} else if (suffix[l] + prefix[l + 1] >= n) {
+				return start + width - suffix[l];
+			} else {
+				i = l + 1;
+				start += width;
+			}
+		}
+		return start;
+	}
+
+	/**
+	 * Finds the highest slot where n contiguous free slots start.
+	 *
+	 * @param n
+	 *            number of contiguous slots
+	 * @return the index of the first slot, or -1 if they do not fit
+	 */
+	public int lastFit(int n) {
+		if (n < 1 || best[1] < n) {
+			return -1;
+		}
+		int i = 1;
+		int start = 0;
+		int width = leaves;
+		while (i < leaves) {
+			width >>>= 1;
+			int l = 2 * i;
+			if (best[l + 1] >= n) {
+				i = l + 1;
+				start += width;
+			} else if (suffix[l] + prefix[l + 1] >= n) {
+				return start + width + prefix[l + 1] - n;
+			} else {
+				i = l;
+			}
+		}
+		return start;
+	}
+
+	/**
+	 * Finds the smallest free block with at least n slots; among blocks with
+	 * the same length, the lowest one.
+	 *
+	 * @param n
+	 *            number of contiguous slots
+	 * @return the index of the first slot of the block, or -1 if none fits
+	 */
+	public int bestFit(int n) {
+		if (n < 1) {
+			return -1;
+		}
+		Long block = blocks.ceiling(key(n, 0));
+		if (block == null) {
+			return -1;
+		}
+		return (int) (block.longValue() & 0xFFFFFFFFL);
+	}
+}
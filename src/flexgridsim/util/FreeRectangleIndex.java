@@ -0,0 +1,196 @@
+package flexgridsim.util;
+
+import java.util.ArrayList;
+
+/**
+ * Index of the maximal rectangles of free cells of a spectrum, where each core
+ * is a row and each slot a column, for allocations that take a block of cores
+ * and slots at once. It is built once from the spectrum and then kept up to
+ * date by calling reserved() and released() after every change of a core.
+ *
+ * A reservation splits each rectangle it overlaps into the parts above, below,
+ * left and right of the reserved cells, and keeps the parts not contained in
+ * another rectangle. A release can only create rectangles that hold a released
+ * cell, and in that core they cannot leave the free run around the released
+ * cells, so only the columns of that run are enumerated again; the old
+ * rectangles contained in the new ones are dropped. Queries then look at the
+ * maximal rectangles only, not at every cell of the spectrum.
+ *
+ * @author pedrom
+ */
+public class FreeRectangleIndex {
+
+	private SpectrumBitmap spectrum;
+	private InscribedRectangle enumerator;
+	private ArrayList<Rectangle> rectangles;
+	private ArrayList<Rectangle> pieces;
+
+	/**
+	 * Creates a new FreeRectangleIndex with the current state of a spectrum.
+	 *
+	 * @param spectrum
+	 *            the spectrum of the link
+	 */
+	public FreeRectangleIndex(SpectrumBitmap spectrum) {
+		this.spectrum = spectrum;
+		this.enumerator = new InscribedRectangle();
+		this.rectangles = new ArrayList<Rectangle>();
+		this.pieces = new ArrayList<Rectangle>();
+		int n = enumerator.enumerate(spectrum);
+		for (int i = 0; i < n; i++) {
+			rectangles.add(enumerator.getRectangle(i));
+		}
+	}
+
+	/**
+	 * Must be called after the slots between first and last of a core were
+	 * reserved.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param first
+	 *            index of the first slot reserved
+	 * @param last
+	 *            index of the last slot reserved
+	 */
+	public void reserved(int core, int first, int last) {
+		pieces.clear();
+		int kept = 0;
+		for (int i = 0; i < rectangles.size(); i++) {
+			Rectangle r = rectangles.get(i);
+			if (r.getRowStart() > core || r.getRowEnd() < core || r.getColStart() > last || r.getColEnd() < first) {
+				rectangles.set(kept++, r);
+				continue;
+			}
+			if (r.getRowStart() < core) {
+				pieces.add(new Rectangle(r.getRowStart(), r.getColStart(), core - 1, r.getColEnd()));
+			}
+			if (r.getRowEnd() > core) {
+				pieces.add(new Rectangle(core + 1, r.getColStart(), r.getRowEnd(), r.getColEnd()));
+			}
+			if (r.getColStart() < first) {
+				pieces.add(new Rectangle(r.getRowStart(), r.getColStart(), r.getRowEnd(), first - 1));
+			}
+			if (r.getColEnd() > last) {
+				pieces.add(new Rectangle(r.getRowStart(), last + 1, r.getRowEnd(), r.getColEnd()));
+			}
+		}
+		rectangles.subList(kept, rectangles.size()).clear();
+		for (int i = 0; i < pieces.size(); i++) {
+			Rectangle p = pieces.get(i);
+			boolean maximal = true;
+			for (int j = 0; j < pieces.size() && maximal; j++) {
+				Rectangle q = pieces.get(j);
+				// Of two equal pieces, the first one is kept
+				if (j != i && q.contains(p) && (j < i || !p.contains(q))) {
+					maximal = false;
+				}
+			}
+			for (int j = 0; j < kept && maximal; j++) {
+				if (rectangles.get(j).contains(p)) {
+					maximal = false;
+				}
+			}
+			if (maximal) {
+				rectangles.add(p);
+			}
+		}
+	}
+
+	/**
+	 * Must be called after the slots between first and last of a core were
+	 * released.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param first
+	 *            index of the first slot released
+	 * @param last
+	 *            index of the last slot released
+	 */
+	public void released(int core, int first, int last) {
+		int lo = spectrum.previousReserved(core, first) + 1;
+		int hi = spectrum.nextReserved(core, last);
+		if (hi < 0) {
+			hi = spectrum.getSlots();
+		}
+		int n = enumerator.enumerate(spectrum, lo, hi - 1);
+		for (int i = 0; i < n; i++) {
+			if (enumerator.getRowStart(i) > core || enumerator.getRowEnd(i) < core
+					|| enumerator.getColStart(i) > last || enumerator.getColEnd(i) < first) {
+				continue;
+			}
+			Rectangle a = enumerator.getRectangle(i);
+			boolean present = false;
+			for (int j = rectangles.size() - 1; j >= 0; j--) {
+				Rectangle r = rectangles.get(j);
+				if (a.contains(r)) {
+					if (r.contains(a)) {
+						present = true;
+					} else {
+						rectangles.remove(j);
+					}
+				}
+			}
+			if (!present) {
+				rectangles.add(a);
+			}
+		}
+	}
+
+	/**
+	 * Gets the maximal rectangles of free cells. The list is shared and must
+	 * not be changed.
+	 *
+	 * @return the list of maximal rectangles
+	 */
+	public ArrayList<Rectangle> getRectangles() {
+		return rectangles;
+	}
+
+	/**
+	 * Gets the number of maximal rectangles of free cells.
+	 *
+	 * @return the number of maximal rectangles
+	 */
+	public int getNumRectangles() {
+		return rectangles.size();
+	}
+
+	/**
+	 * Finds the smallest rectangle of free cells with at least a number of
+	 * cells and of slots. The rectangle found starts at the first core and
+	 * slot of the maximal rectangle it fits in; among rectangles of the same
+	 * size, the one with fewer cores, and then the one in the first maximal
+	 * rectangle of the list, is taken.
+	 *
+	 * @param area
+	 *            the minimum number of cells
+	 * @param width
+	 *            the minimum number of slots
+	 * @return the rectangle, or null if none fits
+	 */
+	public Rectangle findRectangle(int area, int width) {
+		Rectangle best = null;
+		int bestArea = Integer.MAX_VALUE;
+		int bestRows = 0;
+		for (int i = 0; i < rectangles.size(); i++) {
+			Rectangle r = rectangles.get(i);
+			int h = InscribedRectangle.fitRows(r.getHeight(), r.getWidth(), area, width);
+			if (h == 0) {
+				continue;
+			}
+			int size = InscribedRectangle.fitArea(h, area, width);
+			if (size < bestArea || (size == bestArea && h < bestRows)) {
+				bestArea = size;
+				bestRows = h;
+				best = r;
+			}
+		}
+		if (best == null) {
+			return null;
+		}
+		return new Rectangle(best.getRowStart(), best.getColStart(), best.getRowStart() + bestRows - 1,
+				best.getColStart() + bestArea / bestRows - 1);
+	}
+}
@@ -0,0 +1,273 @@
+package flexgridsim.util;
+
+/**
+ * Dijkstra's algorithm over an indexed binary heap of nodes, so each search
+ * takes O((n + m) log n) time instead of the O(n^2) of scanning every node for
+ * the closest one.
+ *
+ * An object is a workspace that keeps its distance, predecessor and heap
+ * arrays between searches. Nodes are stamped with the number of the search
+ * that reached them, so starting a new search does not clear the arrays and a
+ * search that stops at its destination only touches the nodes it reached.
+ * Among nodes at the same distance, the one with the lowest index is settled
+ * first. A workspace must not be shared between threads; getWorkspace() gives
+ * one for the current thread.
+ *
+ * @author pedrom
+ */
+public class HeapDijkstra {
+
+	private static final ThreadLocal<HeapDijkstra> WORKSPACE = new ThreadLocal<HeapDijkstra>();
+
+	private int nodes;
+	private double[] dist;
+	private int[] pred;
+	private int[] heap;
+	private int[] heapPos;
+	private int[] reached;
+	private int[] settled;
+	private int search;
+	private int size;
+
+	/**
+	 * Creates a new HeapDijkstra for graphs with up to a number of nodes.
+	 *
+	 * @param nodes
+	 *            the number of nodes
+	 */
+	public HeapDijkstra(int nodes) {
+		this.nodes = nodes;
+		this.dist = new double[nodes];
+		this.pred = new int[nodes];
+		this.heap = new int[nodes];
+		this.heapPos = new int[nodes];
+		this.reached = new int[nodes];
+		this.settled = new int[nodes];
+		this.search = 0;
+	}
+
+	/**
+	 * Gets the workspace of the current thread, big enough for a number of
+	 * nodes.
+	 *
+	 * @param nodes
+	 *            the number of nodes of the graph
+	 * @return the workspace
+	 */
+	public static HeapDijkstra getWorkspace(int nodes) {
+		HeapDijkstra workspace = WORKSPACE.get();
+		if (workspace == null || workspace.nodes < nodes) {
+			workspace = new HeapDijkstra(nodes);
+			WORKSPACE.set(workspace);
+		}
+		return workspace;
+	}
+
+	/**
+	 * Finds the shortest paths from a node over a sparse graph, skipping
+	 * blocked nodes and edges.
+	 *
+	 * @param graph
+	 *            the graph
+	 * @param src
+	 *            the source node
+	 * @param dst
+	 *            the node where the search stops once it is settled, or -1 to
+	 *            reach every node
+	 * @param blockedNode
+	 *            nodes that cannot be used, or null
+	 * @param blockedEdge
+	 *            edges, by index in the graph, that cannot be used, or null
+	 * @return true if dst was reached, or if dst is -1
+	 */
+	public boolean search(CsrGraph graph, int src, int dst, boolean[] blockedNode, boolean[] blockedEdge) {
+		start(src);
+		while (size > 0) {
+			int u = pop();
+			if (u == dst) {
+				return true;
+			}
+			int end = graph.getEdgeEnd(u);
+			for (int e = graph.getEdgeStart(u); e < end; e++) {
+				int v = graph.getTarget(e);
+				if ((blockedEdge != null && blockedEdge[e]) || (blockedNode != null && blockedNode[v])) {
+					continue;
+				}
+				relax(u, v, graph.getWeight(e));
+			}
+		}
+		return dst < 0;
+	}
+
+	/**
+	 * Finds the shortest paths from a node to every other node of a weighted
+	 * graph.
+	 *
+	 * @param graph
+	 *            the weighted graph
+	 * @param src
+	 *            the source node
+	 */
+	public void search(WeightedGraph graph, int src) {
+		start(src);
+		while (size > 0) {
+			int u = pop();
+			for (int v : graph.neighbors(u)) {
+				relax(u, v, graph.getWeight(u, v));
+			}
+		}
+	}
+
+	/**
+	 * Says whether a node was reached by the last search.
+	 *
+	 * @param v
+	 *            the node
+	 * @return true if there is a path to the node
+	 */
+	public boolean isReached(int v) {
+		return reached[v] == search;
+	}
+
+	/**
+	 * Gets the distance of a node found by the last search.
+	 *
+	 * @param v
+	 *            the node
+	 * @return the cost of the shortest path to the node, or infinity if it was
+	 *         not reached
+	 */
+	public double getDistance(int v) {
+		return isReached(v) ? dist[v] : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Gets the node before another one in the shortest path found by the last
+	 * search.
+	 *
+	 * @param v
+	 *            the node
+	 * @return the preceding node, or -1 for the source and for nodes not
+	 *         reached
+	 */
+	public int getPredecessor(int v) {
+		return isReached(v) ? pred[v] : -1;
+	}
+
+	/**
+	 * Retrieves the shortest path to a node found by the last search.
+	 *
+	 * @param src
+	 *            the source node of the search
+	 * @param dst
+	 *            the destination node
+	 * @return the nodes of the path from src to dst, or an empty array if dst
+	 *         was not reached
+	 */
+	public int[] getPath(int src, int dst) {
+		if (!isReached(dst)) {
+			return new int[0];
+		}
+		int hops = 0;
+		for (int v = dst; v != src; v = pred[v]) {
+			hops++;
+		}
+		int[] path = new int[hops + 1];
+		for (int v = dst; hops >= 0; v = pred[v]) {
+			path[hops--] = v;
+		}
+		return path;
+	}
+
+	private void start(int src) {
+		search++;
+		if (search == Integer.MAX_VALUE) {
+			// Stamps wrap around; forget every old search
+			for (int v = 0; v < nodes; v++) {
+				reached[v] = 0;
+				settled[v] = 0;
+			}
+			search = 1;
+		}
+		size = 0;
+		reached[src] = search;
+		dist[src] = 0;
+		pred[src] = -1;
+		heap[size] = src;
+		heapPos[src] = size++;
+	}
+
+	private int pop() {
+		int u = heap[0];
+		settled[u] = search;
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			heapPos[heap[0]] = 0;
+			siftDown(0);
+		}
+		return u;
+	}
+
+	private void relax(int u, int v, double weight) {
+		if (settled[v] == search) {
+			return;
+		}
+		double d = dist[u] + weight;
+		if (reached[v] != search) {
+			reached[v] = search;
+			dist[v] = d;
+			pred[v] = u;
+			heap[size] = v;
+			heapPos[v] = size++;
+			siftUp(heapPos[v]);
+		} else if (d < dist[v]) {
+			dist[v] = d;
+			pred[v] = u;
+			siftUp(heapPos[v]);
+		}
+	}
+
+	/**
+	 * Says whether node a leaves the heap before node b.
+	 */
+	private boolean before(int a, int b) {
+		return dist[a] < dist[b] || (dist[a] == dist[b] && a < b);
+	}
+
+	private void siftUp(int i) {
+		int v = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!before(v, heap[parent])) {
+				break;
+			}
+			heap[i] = heap[parent];
+			heapPos[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = v;
+		heapPos[v] = i;
+	}
+
+	private void siftDown(int i) {
+		int v = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && before(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!before(heap[child], v)) {
+				break;
+			}
+			heap[i] = heap[child];
+			heapPos[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = v;
+		heapPos[v] = i;
+	}
+}
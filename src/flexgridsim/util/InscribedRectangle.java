@@ -1,189 +1,291 @@
 package flexgridsim.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
- * @author pedrom
+ * Enumerates the maximal rectangles of free cells of a spectrum, where each
+ * core is a row and each slot a column. A rectangle is maximal when it cannot
+ * grow by a row or a column in any direction.
+ *
+ * Rows are taken one at a time as the bottom of the rectangles. The number of
+ * free cells above each column, up to the bottom row, forms a histogram, and a
+ * stack of increasing heights gives, for each bar popped, the widest rectangle
+ * of that height ending at the bottom row. It is maximal unless the row below
+ * is free along its whole width, which a prefix count of the free cells of the
+ * next row answers in constant time. The whole enumeration takes time
+ * proportional to the number of cells, and every buffer is kept for the next
+ * call, so an InscribedRectangle must not be shared between threads.
  *
+ * @author pedrom
  */
 public class InscribedRectangle {
 
-	int GetSize(int width, int height) {
-		return (width * height);
-	}
-
-	private int[][] calculateSquares(int height, int width, boolean mask[][]) {
-		int[][] squares = new int[height][width];
-
-		int row;
-		int col;
+	private int rows;
+	private int columns;
+	private int offset;
+	private int[] heights = new int[0];
+	private int[] stackStart;
+	private int[] stackHeight;
+	private int[] freeBefore;
+	private int[] nextFreeBefore;
+	private int numRectangles;
+	private int[] rowStart = new int[16];
+	private int[] rowEnd = new int[16];
+	private int[] colStart = new int[16];
+	private int[] colEnd = new int[16];
 
-		// process bottom boundary of the mask
-		row = (height - 1);
+	/**
+	 * Finds every maximal rectangle of free cells of a spectrum.
+	 *
+	 * @param image
+	 *            the spectrum, where each free slot is a cell
+	 * @return the number of maximal rectangles
+	 */
+	public int enumerate(SpectrumView image) {
+		return enumerate(image, 0, image.getSlots() - 1);
+	}
 
-		for (col = 0; col < width; col++) {
-			if (mask[row][col]) {
-				squares[row][col] = 1;
-			}
+	/**
+	 * Finds every maximal rectangle of free cells of a window of columns of a
+	 * spectrum, as if the columns outside the window were not free.
+	 *
+	 * @param image
+	 *            the spectrum, where each free slot is a cell
+	 * @param firstColumn
+	 *            first column of the window
+	 * @param lastColumn
+	 *            last column of the window
+	 * @return the number of maximal rectangles
+	 */
+	public int enumerate(SpectrumView image, int firstColumn, int lastColumn) {
+		rows = image.getCores();
+		offset = firstColumn;
+		columns = lastColumn - firstColumn + 1;
+		if (heights.length < columns) {
+			heights = new int[columns];
+			stackStart = new int[columns + 1];
+			stackHeight = new int[columns + 1];
+			freeBefore = new int[columns + 1];
+			nextFreeBefore = new int[columns + 1];
 		}
-
-		// process right boundary of the mask
-		col = (width - 1);
-
-		for (row = 0; row < height; row++) {
-			if (mask[row][col]) {
-				squares[row][col] = 1;
+		for (int c = 0; c < columns; c++) {
+			heights[c] = 0;
+		}
+		numRectangles = 0;
+		readRow(image, 0, nextFreeBefore);
+		for (int r = 0; r < rows; r++) {
+			int[] swap = freeBefore;
+			freeBefore = nextFreeBefore;
+			nextFreeBefore = swap;
+			if (r + 1 < rows) {
+				readRow(image, r + 1, nextFreeBefore);
 			}
+			for (int c = 0; c < columns; c++) {
+				heights[c] = freeBefore[c + 1] > freeBefore[c] ? heights[c] + 1 : 0;
+			}
+			scanHistogram(r, r + 1 < rows);
 		}
+		return numRectangles;
+	}
 
-		// process internal pixels of the mask
-		for (row = (height - 2); row >= 0; row--) {
-			for (col = (width - 2); col >= 0; col--) {
-				if (mask[row][col]) {
-					int a = squares[row][col + 1];
-					int b = squares[row + 1][col];
-					int c = squares[row + 1][col + 1];
-
-					squares[row][col] = (Math.min(Math.min(a, b), c) + 1);
-				}
+	/**
+	 * Counts the free cells of a row of the window before each column.
+	 */
+	private void readRow(SpectrumView image, int r, int[] before) {
+		long free = 0;
+		before[0] = 0;
+		for (int c = 0; c < columns; c++) {
+			int slot = offset + c;
+			if (c == 0 || (slot & 63) == 0) {
+				free = image.getFreeWord(r, slot >>> 6);
 			}
+			before[c + 1] = before[c] + (int) ((free >>> slot) & 1L);
 		}
-		return squares;
 	}
 
 	/**
-	 * @param height 
-	 * @param width
-	 * @param mask mask of the elements
-	 * @return list of rectangles
+	 * Emits the maximal rectangles whose bottom is row r.
 	 */
-	public ArrayList<Rectangle> calculateRectangles(int height, int width, boolean mask[][]) {
-		int[][] squares = calculateSquares(height, width, mask);
-
-		int[][] sizes = new int[height][width];
-		int square;
-		int maxSquare = 0;
-
-		for (int row = 0; row < height; row++) {
-			for (int col = 0; col < width; col++) {
-				square = squares[row][col];
-
-				sizes[row][col] = GetSize(square, square);
-
-				if (square > maxSquare) {
-					maxSquare = square;
+	private void scanHistogram(int r, boolean hasNext) {
+		int top = 0;
+		for (int c = 0; c <= columns; c++) {
+			int h = c < columns ? heights[c] : 0;
+			int start = c;
+			while (top > 0 && stackHeight[top - 1] > h) {
+				top--;
+				start = stackStart[top];
+				// Not maximal if the row below is free along the whole width
+				if (!hasNext || nextFreeBefore[c] - nextFreeBefore[start] < c - start) {
+					add(r - stackHeight[top] + 1, offset + start, r, offset + c - 1);
 				}
 			}
-		}
-
-		// find largest rectangles with width >= height
-		int[] height2width = new int[maxSquare + 1];
-
-		int[][] widths = new int[height][width];
-		int[][] heights = new int[height][width];
-
-		int maxSize;
-		int rectWidth;
-		int rectHeight;
-		int size;
-
-		for (int row = 0; row < height; row++) {
-			for (int s = 0; s <= maxSquare; s++) {
-				height2width[s] = 0;
+			if (h > 0 && (top == 0 || stackHeight[top - 1] < h)) {
+				stackStart[top] = start;
+				stackHeight[top] = h;
+				top++;
 			}
+		}
+	}
 
-			for (int col = (width - 1); col >= 0; col--) {
-				square = squares[row][col];
-				if (square > 0) {
-					maxSize = sizes[row][col];
-
-					for (rectHeight = square; rectHeight > 0; rectHeight--) {
-						rectWidth = height2width[rectHeight];
-						rectWidth = Math.max(rectWidth + 1, square);
-						height2width[rectHeight] = rectWidth;
-						size = GetSize(rectWidth, rectHeight);
-						if (size >= maxSize) {
-							maxSize = size;
-							widths[row][col] = rectWidth;
-							heights[row][col] = rectHeight;
-						}
-					}
-
-					sizes[row][col] = maxSize;
-				}
-
-				for (int s = (square + 1); s <= maxSquare; s++) {
-					// widths larger that 'square' will not be available
-					height2width[s] = 0;
-				}
-			}
+	private void add(int firstRow, int firstCol, int lastRow, int lastCol) {
+		if (numRectangles == rowStart.length) {
+			int size = 2 * numRectangles;
+			rowStart = Arrays.copyOf(rowStart, size);
+			rowEnd = Arrays.copyOf(rowEnd, size);
+			colStart = Arrays.copyOf(colStart, size);
+			colEnd = Arrays.copyOf(colEnd, size);
 		}
+		rowStart[numRectangles] = firstRow;
+		rowEnd[numRectangles] = lastRow;
+		colStart[numRectangles] = firstCol;
+		colEnd[numRectangles] = lastCol;
+		numRectangles++;
+	}
 
-		// find largest rectangles with width < height
-		int[] width2height = new int[maxSquare + 1];
+	/**
+	 * @return the number of maximal rectangles found by the last enumeration
+	 */
+	public int getNumRectangles() {
+		return numRectangles;
+	}
 
-		for (int col = 0; col < width; col++) {
-			for (int s = 0; s <= maxSquare; s++) {
-				width2height[s] = 0;
-			}
+	/**
+	 * @param i
+	 *            index of the rectangle
+	 * @return first row of the rectangle
+	 */
+	public int getRowStart(int i) {
+		return rowStart[i];
+	}
 
-			for (int row = (height - 1); row >= 0; row--) {
-				square = squares[row][col];
+	/**
+	 * @param i
+	 *            index of the rectangle
+	 * @return last row of the rectangle
+	 */
+	public int getRowEnd(int i) {
+		return rowEnd[i];
+	}
 
-				if (square > 0) {
-					maxSize = sizes[row][col];
+	/**
+	 * @param i
+	 *            index of the rectangle
+	 * @return first column of the rectangle
+	 */
+	public int getColStart(int i) {
+		return colStart[i];
+	}
 
-					for (rectWidth = square; rectWidth > 0; rectWidth--) {
-						rectHeight = width2height[rectWidth];
-						rectHeight = Math.max(rectHeight + 1, square);
-						width2height[rectWidth] = rectHeight;
-						size = GetSize(rectWidth, rectHeight);
+	/**
+	 * @param i
+	 *            index of the rectangle
+	 * @return last column of the rectangle
+	 */
+	public int getColEnd(int i) {
+		return colEnd[i];
+	}
 
-						if (size > maxSize) {
-							maxSize = size;
-							widths[row][col] = rectWidth;
-							heights[row][col] = rectHeight;
-						}
-					}
+	/**
+	 * @param i
+	 *            index of the rectangle
+	 * @return the rectangle
+	 */
+	public Rectangle getRectangle(int i) {
+		return new Rectangle(rowStart[i], colStart[i], rowEnd[i], colEnd[i]);
+	}
 
-					sizes[row][col] = maxSize;
-				}
+	/**
+	 * Finds the smallest rectangle of free cells with at least a number of
+	 * cells and of columns, among the rectangles of the last enumeration. The
+	 * rectangle found starts at the first row and column of the maximal
+	 * rectangle it fits in; among rectangles of the same size, the one with
+	 * fewer rows, and then the one in the first maximal rectangle, is taken.
+	 *
+	 * @param area
+	 *            the minimum number of cells
+	 * @param width
+	 *            the minimum number of columns
+	 * @return the rectangle, or null if none fits
+	 */
+	public Rectangle findRectangle(int area, int width) {
+		int bestArea = Integer.MAX_VALUE;
+		int bestRows = 0;
+		int best = -1;
+		for (int i = 0; i < numRectangles; i++) {
+			int maxRows = rowEnd[i] - rowStart[i] + 1;
+			int maxColumns = colEnd[i] - colStart[i] + 1;
+			int h = fitRows(maxRows, maxColumns, area, width);
+			if (h > 0 && (fitArea(h, area, width) < bestArea || (fitArea(h, area, width) == bestArea && h < bestRows))) {
+				bestArea = fitArea(h, area, width);
+				bestRows = h;
+				best = i;
+			}
+		}
+		if (best < 0) {
+			return null;
+		}
+		return new Rectangle(rowStart[best], colStart[best], rowStart[best] + bestRows - 1,
+				colStart[best] + bestArea / bestRows - 1);
+	}
 
-				for (int s = (square + 1); s <= maxSquare; s++) {
-					// heights larger that 'square' will not be available
-					width2height[s] = 0;
-				}
+	/**
+	 * Finds the number of rows of the smallest rectangle with at least area
+	 * cells and width columns that fits in a rectangle; among rectangles of
+	 * the same size, the one with fewer rows.
+	 *
+	 * @param maxRows
+	 *            rows of the rectangle it must fit in
+	 * @param maxColumns
+	 *            columns of the rectangle it must fit in
+	 * @param area
+	 *            the minimum number of cells
+	 * @param width
+	 *            the minimum number of columns
+	 * @return the number of rows, or 0 if it does not fit
+	 */
+	static int fitRows(int maxRows, int maxColumns, int area, int width) {
+		if (maxColumns < width || maxRows * maxColumns < area) {
+			return 0;
+		}
+		int bestRows = 0;
+		for (int h = 1; h <= maxRows; h++) {
+			int w = Math.max(width, (area + h - 1) / h);
+			if (w <= maxColumns && (bestRows == 0 || h * w < fitArea(bestRows, area, width))) {
+				bestRows = h;
 			}
 		}
+		return bestRows;
+	}
 
-		// find the largest rectangle
-		ArrayList<Rectangle> rectangles = new ArrayList<Rectangle>();
+	/**
+	 * Cells of the smallest rectangle with a number of rows, at least area
+	 * cells and at least width columns.
+	 */
+	static int fitArea(int rows, int area, int width) {
+		return rows * Math.max(width, (area + rows - 1) / rows);
+	}
+
+	/**
+	 * @param height
+	 * @param width
+	 * @param mask mask of the elements
+	 * @return list of rectangles
+	 */
+	public ArrayList<Rectangle> calculateRectangles(int height, int width, boolean mask[][]) {
+		SpectrumBitmap image = new SpectrumBitmap(height, width);
 		for (int row = 0; row < height; row++) {
 			for (int col = 0; col < width; col++) {
-				size = sizes[row][col];
-				int widthx = col+widths[row][col]-1;
-				int heightx = row+heights[row][col]-1;
-				if (size>0){
-					Rectangle r = new Rectangle(row, col, heightx, widthx);
-					boolean add = true;
-					for (int i = 0; i < rectangles.size(); i++) {
-						if (rectangles.get(i).contains(r)){
-							add = false;
-						}
-						if (r.contains(rectangles.get(i))){
-							rectangles.remove(i);
-						}
-					}
-					if (add)
-						rectangles.add(r);
-					else 
-						System.out.print("");
+				if (!mask[row][col]) {
+					image.reserve(row, col);
 				}
 			}
 		}
-
+		enumerate(image);
+		ArrayList<Rectangle> rectangles = new ArrayList<Rectangle>();
+		for (int i = 0; i < numRectangles; i++) {
+			rectangles.add(getRectangle(i));
+		}
 		return rectangles;
 	}
-	
-	
 }
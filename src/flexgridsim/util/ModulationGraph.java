@@ -23,10 +23,5 @@ public class ModulationGraph extends WeightedGraph{
 	public ModulationGraph(WeightedGraph g) {
 		super(g);
 	}
-	
-	public double getWeight(int source, int target) {
-		return edges[source][target]; 
-	}
-
 
 }
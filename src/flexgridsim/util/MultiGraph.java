@@ -4,8 +4,6 @@
  */
 package flexgridsim.util;
 
-import java.util.ArrayList;
-
 import flexgridsim.PhysicalTopology;
 import flexgridsim.TrafficGenerator;
 import flexgridsim.TrafficInfo;
@@ -13,15 +11,23 @@ import flexgridsim.TrafficInfo;
 /**
  * A multigraph that has an edge for each free slot between two node.
  * 
+ * Only the pairs of nodes linked in the weighted graph have edges. The links
+ * are indexed as the edges of a CsrGraph and the edges of each link are kept
+ * as a row of bits, set when the edge is removed, so the memory grows with the
+ * number of links times the number of slots divided by 64, and contiguous
+ * edges are checked and counted a word at a time. The weights of a link are
+ * only stored once one of them is set.
+ * 
  * @author pedrom
  */
 public class MultiGraph {
 
 	protected int numNodes;
-	protected double[][][] edges; // adjacency matrix
 	protected int numEdges;
-	protected boolean[][][] edgesRemoved;
-	protected int[][] numberOfFreeSlots;
+	protected CsrGraph links;
+	protected SpectrumBitmap edgesRemoved;
+	protected double[][] weights;
+	protected int[] numberOfFreeSlots;
 	protected TrafficGenerator traffic;
 	
 	/**
@@ -33,23 +39,27 @@ public class MultiGraph {
 	 * @param traffic the traffic
 	 */
 	public MultiGraph(WeightedGraph G, PhysicalTopology pt, TrafficGenerator traffic) {
+		this(G, pt.getNumSlots(), traffic);
+	}
+
+	/**
+	 * Instantiate a multigraph from a weighted graph, with a number of edges for
+	 * each edge of the weighted graph.
+	 *
+	 * @param G the weighted graph
+	 * @param numEdges the number of edges between two linked nodes
+	 * @param traffic the traffic
+	 */
+	protected MultiGraph(WeightedGraph G, int numEdges, TrafficGenerator traffic) {
 		this.numNodes = G.getNumNodes();
-		this.numEdges = pt.getNumSlots();
-		this.edges = new double[this.numNodes][this.numNodes][this.numEdges];
-		this.edgesRemoved = new boolean[numNodes][numNodes][numEdges];
-		this.numberOfFreeSlots = new int[numNodes][numNodes];
-		for (int i = 0; i < G.size(); i++) {
-			for (int j = 0; j < G.size(); j++) {
-				for (int k = 0; k < pt.getNumSlots(); k++) {
-					this.edgesRemoved[i][j][k] = true;
-				}
-			}
-		}
-		for (int i = 0; i < G.size(); i++) {
-			int[] neighbors = G.neighbors(i);
-			for (int j = 0; j < neighbors.length; j++) {
-				this.restoreRemovedEdges(i, neighbors[j], 0, pt.getNumSlots()-1);
-			}
+		this.numEdges = numEdges;
+		this.links = new CsrGraph(G);
+		int numLinks = links.getNumEdges();
+		this.edgesRemoved = new SpectrumBitmap(Math.max(numLinks, 1), numEdges);
+		this.weights = new double[numLinks][];
+		this.numberOfFreeSlots = new int[numLinks];
+		for (int i = 0; i < numLinks; i++) {
+			this.numberOfFreeSlots[i] = numEdges;
 		}
 		this.traffic = traffic;
 	}
@@ -63,6 +73,17 @@ public class MultiGraph {
 		return this.numNodes;
 	}
 
+	/**
+	 * Finds the index of the link between two nodes.
+	 * 
+	 * @param src source node
+	 * @param dst destination node
+	 * @return the index of the link, or -1 if the nodes are not linked
+	 */
+	protected int link(int src, int dst) {
+		return links.findEdge(src, dst);
+	}
+
 	/**
 	 * Retrieves the weight of a given edge on the graph.
 	 * 
@@ -75,7 +96,11 @@ public class MultiGraph {
 	 * @return the value of the edge's weight
 	 */
 	public double getWeight(int source, int target, int edge) {
-		return this.edges[source][target][edge];
+		int l = link(source, target);
+		if (l < 0 || weights[l] == null) {
+			return 0;
+		}
+		return weights[l][edge];
 	}
 
 	/**
@@ -89,9 +114,21 @@ public class MultiGraph {
 	 *            the number of the edge
 	 * @param w
 	 *            the value of the weight
+	 * @throws IllegalArgumentException
+	 *             if the nodes are not linked
 	 */
 	public void setWeight(int source, int target, int edge, double w) {
-		this.edges[source][target][edge] = w;
+		int l = link(source, target);
+		if (l < 0) {
+			throw (new IllegalArgumentException());
+		}
+		if (weights[l] == null) {
+			if (w == 0) {
+				return;
+			}
+			weights[l] = new double[numEdges];
+		}
+		weights[l][edge] = w;
 	}
 
 	/**
@@ -102,18 +139,20 @@ public class MultiGraph {
 	 * @return list with indexes of the vertex's neighbors
 	 */
 	public int[] neighbors(int vertex) {
-		ArrayList<Integer> neighbors = new ArrayList<Integer>();
-		for (int i = 0; i < this.edgesRemoved[vertex].length; i++) {
-			for (int j = 0; j < this.numEdges; j++) {
-				if (!this.edgesRemoved[vertex][i][j]) {
-					neighbors.add(i);
-					break;
-				}
+		int start = links.getEdgeStart(vertex);
+		int end = links.getEdgeEnd(vertex);
+		int n = 0;
+		for (int l = start; l < end; l++) {
+			if (numberOfFreeSlots[l] > 0) {
+				n++;
 			}
 		}
-		int neighborsArray[] = new int[neighbors.size()];
-		for (int i = 0; i < neighbors.size(); i++) {
-			neighborsArray[i] = neighbors.get(i).intValue();
+		int neighborsArray[] = new int[n];
+		n = 0;
+		for (int l = start; l < end; l++) {
+			if (numberOfFreeSlots[l] > 0) {
+				neighborsArray[n++] = links.getTarget(l);
+			}
 		}
 		return neighborsArray;
 	}
@@ -132,12 +171,11 @@ public class MultiGraph {
 	 * @return true if a set of contiguous edges are available, false otherwise
 	 */
 	public boolean hasSetOfEdges(int src, int dst, int first, int last) {
-		for (int i = first; i <= last; i++) {
-			if (this.edgesRemoved[src][dst][i]) {// && edges[src][dst][i] > 0) {
-				return false;
-			}
+		if (last < first) {
+			return true;
 		}
-		return true;
+		int l = link(src, dst);
+		return l >= 0 && edgesRemoved.isRangeFree(l, first, last - first + 1);
 	}
 
 	/**
@@ -154,16 +192,18 @@ public class MultiGraph {
 	 */             
 	public void markEdgeRemoved(int src, int dst, int edge)
 			throws RuntimeException {
-		if (edgesRemoved[src][dst][edge] == true) {
+		int l = link(src, dst);
+		if (l < 0 || edgesRemoved.isReserved(l, edge)) {
 			throw new RuntimeException();
 		} else {
-			this.edgesRemoved[src][dst][edge] = true;
-			this.numberOfFreeSlots[src][dst]--;
+			this.edgesRemoved.reserve(l, edge);
+			this.numberOfFreeSlots[l]--;
 		}
 	}
 
 	/**
-	 * Mark a set of contiguous edges as removed
+	 * Mark a set of contiguous edges as removed. Edges already removed are
+	 * left as they are.
 	 * 
 	 * @param src
 	 *            source node
@@ -173,20 +213,15 @@ public class MultiGraph {
 	 *            index of the first edge to be removed
 	 * @param lastEdge
 	 * 			  index of the last edge to be removed
-	 * @throws RuntimeException
-	 * 			  if any edge is already removed
 	 */
 	public void markEdgesRemoved(int src, int dst, int firstEdge, int lastEdge)
 			throws RuntimeException {
-		for (int i = firstEdge; i <= lastEdge; i++) {
-			if (edgesRemoved[src][dst][i] == true) {
-//				throw new RuntimeException();
-			} else {
-				this.edgesRemoved[src][dst][i] = true;
-			}
+		int l = link(src, dst);
+		if (l < 0 || lastEdge < firstEdge) {
+			return;
 		}
-		this.numberOfFreeSlots[src][dst] = this.numberOfFreeSlots[src][dst]
-				- (lastEdge - firstEdge + 1);
+		this.edgesRemoved.reserveRange(l, firstEdge, lastEdge - firstEdge + 1);
+		this.numberOfFreeSlots[l] = numEdges - edgesRemoved.countReserved(l);
 	}
 
 	/**
@@ -203,11 +238,12 @@ public class MultiGraph {
 	 */
 	public void restoreRemovedEdge(int src, int dst, int edge)
 			throws RuntimeException {
-		if (edgesRemoved[src][dst][edge] == false) {
+		int l = link(src, dst);
+		if (l < 0 || edgesRemoved.isFree(l, edge)) {
 			throw new RuntimeException();
 		} else {
-			this.edgesRemoved[src][dst][edge] = false;
-			this.numberOfFreeSlots[src][dst]++;
+			this.edgesRemoved.release(l, edge);
+			this.numberOfFreeSlots[l]++;
 		}
 	}
 
@@ -227,15 +263,19 @@ public class MultiGraph {
 	 */
 	public void restoreRemovedEdges(int src, int dst, int firstEdge,
 			int lastEdge) throws RuntimeException {
-		for (int i = firstEdge; i <= lastEdge; i++) {
-			if (edgesRemoved[src][dst][i] == false) {
-				throw new RuntimeException();
-			} else {
-				this.edgesRemoved[src][dst][i] = false;
-			}
+		if (lastEdge < firstEdge) {
+			return;
 		}
-		this.numberOfFreeSlots[src][dst] = this.numberOfFreeSlots[src][dst]
-				+ (lastEdge - firstEdge + 1);
+		int l = link(src, dst);
+		if (l < 0) {
+			throw new RuntimeException();
+		}
+		int free = edgesRemoved.nextFree(l, firstEdge);
+		if (free >= 0 && free <= lastEdge) {
+			throw new RuntimeException();
+		}
+		this.edgesRemoved.releaseRange(l, firstEdge, lastEdge - firstEdge + 1);
+		this.numberOfFreeSlots[l] += lastEdge - firstEdge + 1;
 	}
 	/**
 	 * Verify if an edge exists 
@@ -246,7 +286,8 @@ public class MultiGraph {
 	 * @return true if the graph has the edge
 	 */
 	public boolean hasEdge(int src, int dst, int edge) {
-		return !this.edgesRemoved[src][dst][edge];
+		int l = link(src, dst);
+		return l >= 0 && edgesRemoved.isFree(l, edge);
 	}
 	/**
 	 * Return the highest number of contiguous edges between two nodes
@@ -256,20 +297,21 @@ public class MultiGraph {
 	 * @return  the highest number of contiguous edges between two nodes
 	 */
 	public int maxNumberOfContiguousEdges(int src, int dst) {
+		int l = link(src, dst);
+		if (l < 0) {
+			return 0;
+		}
 		int maxValue = 0;
-		int localCount = 0;
-		for (int i = 0; i < this.edgesRemoved[src][dst].length; i++) {
-			if (!this.edgesRemoved[src][dst][i]) {
-				localCount++;
-			} else {
-				if (maxValue < localCount) {
-					maxValue = localCount;
-				}
-				localCount = 0;
+		int first = edgesRemoved.nextFree(l, 0);
+		while (first >= 0) {
+			int end = edgesRemoved.nextReserved(l, first);
+			if (end < 0) {
+				end = numEdges;
 			}
-		}
-		if (maxValue < localCount) {
-			maxValue = localCount;
+			if (maxValue < end - first) {
+				maxValue = end - first;
+			}
+			first = edgesRemoved.nextFree(l, end);
 		}
 		return maxValue;
 	}
@@ -283,14 +325,17 @@ public class MultiGraph {
 	 * @return number of fragments
 	 */
 	public int numberOfFragments(int src, int dst) {
+		int l = link(src, dst);
+		if (l < 0) {
+			return 0;
+		}
 		int counter = 0;
-		boolean currentValue = true;
-		for (int i = 0; i < this.edgesRemoved[src][dst].length; i++) {
-			if (this.edgesRemoved[src][dst][i] != currentValue) {
-				if (currentValue == true)
-					counter++;
-				currentValue = !currentValue;
-			}
+		long carry = 0;
+		for (int w = 0; w < edgesRemoved.getWordsPerCore(); w++) {
+			long free = edgesRemoved.getFreeWord(l, w);
+			// A fragment starts at each free edge whose previous edge is removed
+			counter += Long.bitCount(free & ~((free << 1) | carry));
+			carry = free >>> 63;
 		}
 		return counter;
 	}
@@ -301,19 +346,7 @@ public class MultiGraph {
 	 * @return the higher cardinality, in or out the node
 	 */
 	public double maxFlow(int src, int dst) {
-		int outCounter = 0;
-		for (int i = 0; i < this.edgesRemoved[src][dst].length; i++) {
-			if (this.edgesRemoved[src][dst][i] == false) {
-				outCounter++;
-			}
-		}
-		int inCounter = 0;
-		for (int i = 0; i < this.edgesRemoved[src][dst].length; i++) {
-			if (this.edgesRemoved[dst][src][i] == false) {
-				inCounter++;
-			}
-		}
-		return Math.min(outCounter, inCounter);
+		return Math.min(getNumberOfFreeSlots(src, dst), getNumberOfFreeSlots(dst, src));
 	}
 	
 	/**
@@ -331,7 +364,8 @@ public class MultiGraph {
 	 * @return number of free slots between two nodes
 	 */
 	public int getNumberOfFreeSlots(int src, int dst) {
-		return numberOfFreeSlots[src][dst];
+		int l = link(src, dst);
+		return l < 0 ? 0 : numberOfFreeSlots[l];
 	}
 	
 	/**
@@ -344,28 +378,27 @@ public class MultiGraph {
 	 * @return the fragmentation ratio
 	 */
 	public double getFragmentationRatio(int src, int dst, double slotCapacity){
-		ArrayList<Double> fragmentsPotential = new ArrayList<Double>();
-		for (int i = 0; i < this.edgesRemoved.length-1; i++) {
-			if (this.edgesRemoved[src][dst][i] == false){
-				i++;
-				int fragmentSize = 1;
-				while (this.edgesRemoved[src][dst][i] == false && i < edgesRemoved.length-2 ){
-					fragmentSize++;
-					i++;
-				}
-				double counter = 0;
-				for (TrafficInfo call : this.traffic.getCallsTypeInfo()) {
-					if (call.getRate()/slotCapacity >= fragmentSize){
-						counter++;
-					}
+		int l = link(src, dst);
+		TrafficInfo[] calls = this.traffic.getCallsTypeInfo();
+		double sum = 0;
+		int fragments = 0;
+		int first = l < 0 ? -1 : edgesRemoved.nextFree(l, 0);
+		while (first >= 0) {
+			int end = edgesRemoved.nextReserved(l, first);
+			if (end < 0) {
+				end = numEdges;
+			}
+			int fragmentSize = end - first;
+			double counter = 0;
+			for (TrafficInfo call : calls) {
+				if (call.getRate()/slotCapacity >= fragmentSize){
+					counter++;
 				}
-				fragmentsPotential.add(counter/this.traffic.getCallsTypeInfo().length) ;
 			}
+			sum += counter/calls.length;
+			fragments++;
+			first = edgesRemoved.nextFree(l, end);
 		}
-		double sum = 0;
-		for (Double potential : fragmentsPotential) {
-			sum += potential.doubleValue();
-		}
-		return sum/fragmentsPotential.size();
+		return sum/fragments;
 	}
-}
\ No newline at end of file
+}
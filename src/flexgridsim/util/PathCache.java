@@ -0,0 +1,134 @@
+package flexgridsim.util;
+
+import flexgridsim.PhysicalTopology;
+
+/**
+ * The k shortest loopless paths between every pair of nodes of a physical
+ * topology. Paths are computed only once, when the cache is created, and are
+ * kept as arrays of node ids and arrays of link ids, so routing an arriving
+ * flow is a single array lookup.
+ *
+ * @author pedrom
+ */
+public class PathCache {
+
+	private static final int[][] NO_PATHS = new int[0][];
+
+	private int nodes;
+	private int k;
+	private int[][][] nodePaths;
+	private int[][][] linkPaths;
+
+	/**
+	 * Creates a new PathCache with the k shortest paths of every pair of nodes
+	 * of the topology. Pairs connected by fewer than k paths keep only the
+	 * paths that exist.
+	 *
+	 * @param pt
+	 *            the physical topology
+	 * @param k
+	 *            the maximum number of paths for each pair of nodes
+	 */
+	public PathCache(PhysicalTopology pt, int k) {
+		if (k < 1) {
+			throw (new IllegalArgumentException());
+		}
+		this.nodes = pt.getNumNodes();
+		this.k = k;
+		this.nodePaths = new int[nodes * nodes][][];
+		this.linkPaths = new int[nodes * nodes][][];
+		YenKShortestPaths kShortestPaths = new YenKShortestPaths(pt);
+		for (int src = 0; src < nodes; src++) {
+			for (int dst = 0; dst < nodes; dst++) {
+				int pair = src * nodes + dst;
+				if (src == dst) {
+					nodePaths[pair] = linkPaths[pair] = NO_PATHS;
+					continue;
+				}
+				nodePaths[pair] = kShortestPaths.getShortestPaths(src, dst, k);
+				linkPaths[pair] = kShortestPaths.toLinks(nodePaths[pair]);
+			}
+		}
+	}
+
+	/**
+	 * Gets the maximum number of paths kept for each pair of nodes.
+	 *
+	 * @return the value of k
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * Gets the number of paths kept between two nodes.
+	 *
+	 * @param src
+	 *            the source node
+	 * @param dst
+	 *            the destination node
+	 * @return the number of paths, at most k
+	 */
+	public int getNumPaths(int src, int dst) {
+		return nodePaths[src * nodes + dst].length;
+	}
+
+	/**
+	 * Retrieves the paths between two nodes as sequences of nodes, from the
+	 * shortest to the longest. The arrays are shared and must not be changed.
+	 *
+	 * @param src
+	 *            the source node
+	 * @param dst
+	 *            the destination node
+	 * @return the paths, each one given by its nodes from src to dst
+	 */
+	public int[][] getNodePaths(int src, int dst) {
+		return nodePaths[src * nodes + dst];
+	}
+
+	/**
+	 * Retrieves the paths between two nodes as sequences of link ids, in the
+	 * same order of getNodePaths(). The arrays are shared and must not be
+	 * changed.
+	 *
+	 * @param src
+	 *            the source node
+	 * @param dst
+	 *            the destination node
+	 * @return the paths, each one given by the ids of its links
+	 */
+	public int[][] getLinkPaths(int src, int dst) {
+		return linkPaths[src * nodes + dst];
+	}
+
+	/**
+	 * Retrieves the i-th path between two nodes as a sequence of nodes.
+	 *
+	 * @param src
+	 *            the source node
+	 * @param dst
+	 *            the destination node
+	 * @param i
+	 *            index of the path
+	 * @return the nodes of the path
+	 */
+	public int[] getNodes(int src, int dst, int i) {
+		return nodePaths[src * nodes + dst][i];
+	}
+
+	/**
+	 * Retrieves the i-th path between two nodes as a sequence of link ids.
+	 *
+	 * @param src
+	 *            the source node
+	 * @param dst
+	 *            the destination node
+	 * @param i
+	 *            index of the path
+	 * @return the link ids of the path
+	 */
+	public int[] getLinks(int src, int dst, int i) {
+		return linkPaths[src * nodes + dst][i];
+	}
+}
@@ -0,0 +1,233 @@
+package flexgridsim.util;
+
+import flexgridsim.PhysicalTopology;
+
+/**
+ * Intersection of the free spectrum of every link of a path. The result is
+ * kept as 64-bit words, one bit per slot, so each link of the path is ANDed 64
+ * slots at a time into the same buffer, and the intersection stops as soon as
+ * no free slot is left. A PathSpectrum is meant to be created once and reused
+ * for every path.
+ *
+ * @author pedrom
+ */
+public class PathSpectrum implements SpectrumView {
+
+	private int cores;
+	private int slots;
+	private int words;
+	private long lastWordMask;
+	private long[] free;
+
+	/**
+	 * Creates a new PathSpectrum with every slot free.
+	 *
+	 * @param cores
+	 *            number of cores
+	 * @param slots
+	 *            number of slots per core
+	 */
+	public PathSpectrum(int cores, int slots) {
+		if (cores < 1 || slots < 1) {
+			throw (new IllegalArgumentException());
+		}
+		this.cores = cores;
+		this.slots = slots;
+		this.words = (slots + 63) >>> 6;
+		this.lastWordMask = -1L >>> (64 * words - slots);
+		this.free = new long[cores * words];
+		reset();
+	}
+
+	/**
+	 * Marks every slot as free, so the next intersection starts from scratch.
+	 */
+	public void reset() {
+		for (int c = 0; c < cores; c++) {
+			for (int w = 0; w < words - 1; w++) {
+				free[c * words + w] = -1L;
+			}
+			free[c * words + words - 1] = lastWordMask;
+		}
+	}
+
+	/**
+	 * Intersects the current spectrum with the spectrum of one more link.
+	 *
+	 * @param link
+	 *            the spectrum of the link
+	 * @return true if there is still at least one free slot
+	 */
+	public boolean and(SpectrumView link) {
+		long any = 0;
+		for (int c = 0; c < cores; c++) {
+			for (int w = 0; w < words; w++) {
+				any |= (free[c * words + w] &= link.getFreeWord(c, w));
+			}
+		}
+		return any != 0;
+	}
+
+	/**
+	 * Intersects the spectrum of all links of a path, given by their ids.
+	 *
+	 * @param pt
+	 *            the physical topology
+	 * @param links
+	 *            ids of the links of the path
+	 * @return true if there is at least one slot free in every link; when
+	 *         false, the contents of the spectrum are undefined
+	 */
+	public boolean intersect(PhysicalTopology pt, int[] links) {
+		reset();
+		for (int i = 0; i < links.length; i++) {
+			if (!and(pt.getLink(links[i]).getSpectrumView())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Intersects the spectrum of all links of a path, given by its nodes.
+	 *
+	 * @param pt
+	 *            the physical topology
+	 * @param nodes
+	 *            nodes of the path, from source to destination
+	 * @return true if there is at least one slot free in every link; when
+	 *         false, the contents of the spectrum are undefined
+	 */
+	public boolean intersectNodes(PhysicalTopology pt, int[] nodes) {
+		reset();
+		for (int i = 0; i < nodes.length - 1; i++) {
+			if (!and(pt.getLink(nodes[i], nodes[i + 1]).getSpectrumView())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Says whether there is no free slot left.
+	 *
+	 * @return true if every slot is reserved in at least one link
+	 */
+	public boolean isEmpty() {
+		for (int i = 0; i < free.length; i++) {
+			if (free[i] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the spectrum into a boolean image, where true is a free slot.
+	 *
+	 * @param image
+	 *            a cores x slots matrix that will be overwritten
+	 * @return the image
+	 */
+	public boolean[][] toImage(boolean[][] image) {
+		for (int c = 0; c < cores; c++) {
+			for (int s = 0; s < slots; s++) {
+				image[c][s] = (free[c * words + (s >>> 6)] & (1L << s)) != 0;
+			}
+		}
+		return image;
+	}
+
+	public int getCores() {
+		return cores;
+	}
+
+	public int getSlots() {
+		return slots;
+	}
+
+	public int getWordsPerCore() {
+		return words;
+	}
+
+	public boolean isFree(int core, int slot) {
+		return (free[core * words + (slot >>> 6)] & (1L << slot)) != 0;
+	}
+
+	public long getFreeWord(int core, int word) {
+		return free[core * words + word];
+	}
+
+	/**
+	 * Copies the free slots of one core of a spectrum into a row of words.
+	 *
+	 * @param row
+	 *            the destination row, with at least getWordsPerCore() words
+	 * @param spectrum
+	 *            the spectrum
+	 * @param core
+	 *            index of the core
+	 * @return true if the row has at least one free slot
+	 */
+	public static boolean copyCore(long[] row, SpectrumView spectrum, int core) {
+		long any = 0;
+		for (int w = 0; w < spectrum.getWordsPerCore(); w++) {
+			any |= (row[w] = spectrum.getFreeWord(core, w));
+		}
+		return any != 0;
+	}
+
+	/**
+	 * Intersects a row of words with the free slots of one core of a spectrum.
+	 * The destination may be the same array as the source row.
+	 *
+	 * @param result
+	 *            the destination row
+	 * @param row
+	 *            the source row
+	 * @param spectrum
+	 *            the spectrum
+	 * @param core
+	 *            index of the core
+	 * @return true if the result has at least one free slot
+	 */
+	public static boolean andCore(long[] result, long[] row, SpectrumView spectrum, int core) {
+		long any = 0;
+		for (int w = 0; w < spectrum.getWordsPerCore(); w++) {
+			any |= (result[w] = row[w] & spectrum.getFreeWord(core, w));
+		}
+		return any != 0;
+	}
+
+	/**
+	 * Finds the first set of n contiguous free slots in a row of words.
+	 *
+	 * @param row
+	 *            the row of words, where each set bit is a free slot
+	 * @param n
+	 *            number of contiguous slots
+	 * @return the index of the first slot of the set, or -1 if there is none
+	 */
+	public static int firstFit(long[] row, int n) {
+		int run = 0;
+		for (int w = 0; w < row.length; w++) {
+			long x = row[w];
+			int pos = 0;
+			while (pos < 64) {
+				long shifted = x >>> pos;
+				if ((shifted & 1L) != 0) {
+					int ones = Long.numberOfTrailingZeros(~shifted);
+					run += ones;
+					pos += ones;
+					if (run >= n) {
+						return (w << 6) + pos - run;
+					}
+				} else {
+					run = 0;
+					pos = shifted == 0 ? 64 : pos + Long.numberOfTrailingZeros(shifted);
+				}
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,169 @@
+package flexgridsim.util;
+
+import flexgridsim.SlotSet;
+
+/**
+ * Finds a region of free cells of a spectrum that can hold a demand, labeling
+ * the rows (cores) one at a time and stopping as soon as the region chosen by a
+ * policy is known:
+ * 
+ * LOWEST_INDEX takes the region whose first cell comes first, row by row. It
+ * stops once every region that starts before the lowest open one is complete
+ * and too small, and that open one already has enough cells, since no region
+ * can then join it from above.
+ * 
+ * SMALLEST_FITTING takes the region with the fewest cells that fits, and
+ * MOST_COMPACT the one with the smallest bounding box. Both compare regions as
+ * they are completed, keep the first one among equals, and stop when a region
+ * reaches the lower bound of the demand itself.
+ * 
+ * Before labeling anything, a spectrum with fewer free cells than the demand
+ * is rejected. The cells given for a region are the first ones of its runs
+ * known when the search stopped, row by row.
+ * 
+ * @author pedrom
+ */
+public class RegionExtractor extends ConnectedComponent {
+
+	/** Take the region whose first cell comes first. */
+	public static final int LOWEST_INDEX = 0;
+	/** Take the fitting region with the fewest cells. */
+	public static final int SMALLEST_FITTING = 1;
+	/** Take the fitting region with the smallest bounding box. */
+	public static final int MOST_COMPACT = 2;
+
+	private int[] seen = new int[0];
+	private int search;
+	private int policy;
+	private int demand;
+	private int best;
+	private int bestKey;
+
+	/**
+	 * Gets a policy from its name, as used in the xml files.
+	 * 
+	 * @param name
+	 *            "lowest", "smallest" or "compact"
+	 * @return the policy
+	 */
+	public static int getPolicy(String name) {
+		if (name.equals("lowest")) {
+			return LOWEST_INDEX;
+		} else if (name.equals("smallest")) {
+			return SMALLEST_FITTING;
+		} else if (name.equals("compact")) {
+			return MOST_COMPACT;
+		}
+		throw (new IllegalArgumentException("Unknown region policy: " + name));
+	}
+
+	/**
+	 * Finds the free region of a spectrum chosen by a policy among those with
+	 * at least demand cells.
+	 * 
+	 * @param image
+	 *            the spectrum, where each free slot is a cell
+	 * @param demand
+	 *            the number of cells
+	 * @param policy
+	 *            LOWEST_INDEX, SMALLEST_FITTING or MOST_COMPACT
+	 * @return demand cells of the region, or null if no region fits
+	 */
+	public SlotSet extract(SpectrumView image, int demand, int policy) {
+		if (demand < 1 || policy < LOWEST_INDEX || policy > MOST_COMPACT) {
+			throw (new IllegalArgumentException());
+		}
+		if (countFree(image) < demand) {
+			return null;
+		}
+		start(image);
+		if (seen.length < runRow.length) {
+			seen = new int[runRow.length];
+			search = 0;
+		}
+		search++;
+		this.policy = policy;
+		this.demand = demand;
+		this.best = -1;
+		int next = 0;
+		for (int r = 0; r <= rows; r++) {
+			if (r < rows) {
+				labelRow(image, r);
+			}
+			if (policy == LOWEST_INDEX) {
+				while (next < numRuns) {
+					if (find(next) != next || (rowEnd[next] < r && cells[next] < demand)) {
+						// Not the first run of a set, or a complete region too small
+						next++;
+					} else if (cells[next] >= demand) {
+						return slotsOf(next);
+					} else {
+						break;
+					}
+				}
+			} else if (r > 0) {
+				// Regions with runs in row r - 1 but not in row r are complete
+				for (int run = rowFirstRun[r - 1]; run < rowFirstRun[r]; run++) {
+					int root = find(run);
+					if (rowEnd[root] == r - 1 && seen[root] != search) {
+						seen[root] = search;
+						if (offer(root)) {
+							return slotsOf(best);
+						}
+					}
+				}
+			}
+		}
+		return best < 0 ? null : slotsOf(best);
+	}
+
+	/**
+	 * Compares a complete region with the best one so far.
+	 * 
+	 * @return true if no other region can be better
+	 */
+	private boolean offer(int root) {
+		if (cells[root] < demand) {
+			return false;
+		}
+		int key;
+		if (policy == SMALLEST_FITTING) {
+			key = cells[root];
+		} else {
+			key = (rowEnd[root] - rowStart[root] + 1) * (colEnd[root] - colStart[root] + 1);
+		}
+		if (best < 0 || key < bestKey) {
+			best = root;
+			bestKey = key;
+		}
+		return bestKey == demand;
+	}
+
+	/**
+	 * Takes the first demand cells of the runs of a set, row by row.
+	 */
+	private SlotSet slotsOf(int root) {
+		int[] fitted = new int[demand];
+		int n = 0;
+		for (int run = root; n < demand; run++) {
+			if (find(run) != root) {
+				continue;
+			}
+			int length = Math.min(runEnd[run] - runStart[run], demand - n);
+			for (int i = 0; i < length; i++) {
+				fitted[n++] = SlotSet.pack(runRow[run], runStart[run] + i);
+			}
+		}
+		return new SlotSet(fitted, n);
+	}
+
+	private static int countFree(SpectrumView image) {
+		int free = 0;
+		for (int c = 0; c < image.getCores(); c++) {
+			for (int w = 0; w < image.getWordsPerCore(); w++) {
+				free += Long.bitCount(image.getFreeWord(c, w));
+			}
+		}
+		return free;
+	}
+}
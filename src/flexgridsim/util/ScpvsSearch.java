@@ -0,0 +1,193 @@
+package flexgridsim.util;
+
+import flexgridsim.FlexGridLink;
+import flexgridsim.PhysicalTopology;
+
+/**
+ * Spectrum-constrained path search of SCPVS. The search grows a tree from the
+ * source one level at a time; a node joins the tree the first time it is
+ * reached over a link with enough contiguous free slots for the demand, and
+ * its available spectrum is the free spectrum of its parent ANDed with the
+ * link's one.
+ * 
+ * The nodes of each level are kept in an array, in the order they were
+ * reached, and each node points to its parent and to the link it was reached
+ * by, so paths are never copied. The available spectrum of the nodes of the
+ * current and of the next level are rows of words kept in two banks, indexed
+ * by the position of the node in its level, and reused by every level and
+ * every search. The search stops as soon as the destination is reached, since
+ * the path to a node never changes once it joins the tree.
+ * 
+ * A ScpvsSearch must not be shared between threads.
+ * 
+ * @author pedrom
+ */
+public class ScpvsSearch {
+
+	private PhysicalTopology pt;
+	private CsrGraph graph;
+	private int words;
+	private int[] frontier;
+	private int[] next;
+	private long[][] spectra;
+	private long[][] nextSpectra;
+	private int[] parent;
+	private int[] parentLink;
+	private int[] visited;
+	private int search;
+	private int src;
+	private int dst;
+	private long[] dstSpectrum;
+
+	/**
+	 * Creates a new ScpvsSearch for the links of a physical topology.
+	 *
+	 * @param pt
+	 *            the physical topology
+	 */
+	public ScpvsSearch(PhysicalTopology pt) {
+		int nodes = pt.getNumNodes();
+		this.pt = pt;
+		this.graph = pt.getGraph();
+		this.words = (pt.getNumSlots() + 63) >>> 6;
+		this.frontier = new int[nodes];
+		this.next = new int[nodes];
+		this.spectra = new long[nodes][];
+		this.nextSpectra = new long[nodes][];
+		this.parent = new int[nodes];
+		this.parentLink = new int[nodes];
+		this.visited = new int[nodes];
+		this.search = 0;
+	}
+
+	/**
+	 * Searches a path from a node to another one in which every link has a
+	 * block of at least demand contiguous free slots in core 0.
+	 *
+	 * @param src
+	 *            the source node
+	 * @param dst
+	 *            the destination node
+	 * @param demand
+	 *            the number of contiguous slots
+	 * @return true if a path was found
+	 */
+	public boolean search(int src, int dst, int demand) {
+		start();
+		this.src = src;
+		this.dst = -1;
+		this.dstSpectrum = null;
+		visited[src] = search;
+		parent[src] = -1;
+		parentLink[src] = -1;
+		frontier[0] = src;
+		int size = 1;
+		boolean root = true;
+		while (size > 0) {
+			int nextSize = 0;
+			for (int i = 0; i < size; i++) {
+				int u = frontier[i];
+				int end = graph.getEdgeEnd(u);
+				for (int e = graph.getEdgeStart(u); e < end; e++) {
+					int v = graph.getTarget(e);
+					if (visited[v] == search) {
+						continue;
+					}
+					FlexGridLink link = pt.getLink(graph.getLink(e));
+					if (link.getFreeBlockIndex(0).getLargestFreeBlock() < demand) {
+						continue;
+					}
+					visited[v] = search;
+					parent[v] = u;
+					parentLink[v] = graph.getLink(e);
+					if (nextSpectra[nextSize] == null) {
+						nextSpectra[nextSize] = new long[words];
+					}
+					long[] row = nextSpectra[nextSize];
+					if (root) {
+						PathSpectrum.copyCore(row, link.getSpectrumView(), 0);
+					} else {
+						PathSpectrum.andCore(row, spectra[i], link.getSpectrumView(), 0);
+					}
+					if (v == dst) {
+						this.dst = dst;
+						this.dstSpectrum = row;
+						return true;
+					}
+					next[nextSize++] = v;
+				}
+			}
+			swap();
+			size = nextSize;
+			root = false;
+		}
+		return false;
+	}
+
+	/**
+	 * Retrieves the links of the path found by the last search.
+	 *
+	 * @return the ids of the links from the source to the destination, or an
+	 *         empty array if no path was found
+	 */
+	public int[] getLinks() {
+		if (dst < 0) {
+			return new int[0];
+		}
+		int hops = 0;
+		for (int v = dst; v != src; v = parent[v]) {
+			hops++;
+		}
+		int[] links = new int[hops];
+		for (int v = dst; v != src; v = parent[v]) {
+			links[--hops] = parentLink[v];
+		}
+		return links;
+	}
+
+	/**
+	 * Retrieves the slots of core 0 free in every link of the path found by
+	 * the last search. The row is reused by the next search.
+	 *
+	 * @return the available spectrum as words where each set bit is a free
+	 *         slot, or null if no path was found
+	 */
+	public long[] getAvailableSpectrum() {
+		return dstSpectrum;
+	}
+
+	/**
+	 * Finds the first set of n contiguous slots free in every link of the path
+	 * found by the last search.
+	 *
+	 * @param n
+	 *            number of contiguous slots
+	 * @return the index of the first slot of the set, or -1 if there is none
+	 */
+	public int firstFit(int n) {
+		if (dstSpectrum == null) {
+			return -1;
+		}
+		return PathSpectrum.firstFit(dstSpectrum, n);
+	}
+
+	private void start() {
+		search++;
+		if (search == Integer.MAX_VALUE) {
+			// Stamps wrap around; forget every old search
+			for (int v = 0; v < visited.length; v++) {
+				visited[v] = 0;
+			}
+			search = 1;
+		}
+	}
+
+	private void swap() {
+		int[] nodes = frontier;
+		frontier = next;
+		next = nodes;
+		long[][] rows = spectra;
+		spectra = nextSpectra;
+		nextSpectra = rows;
+	}
+}
@@ -0,0 +1,331 @@
+package flexgridsim.util;
+
+/**
+ * Occupancy of a multicore spectrum stored as 64-bit words, one bit per slot.
+ * A set bit means the slot is reserved. Each core is stored in its own
+ * sequence of words, so operations over a range of slots touch 64 slots at a
+ * time.
+ *
+ * @author pedrom
+ */
+public class SpectrumBitmap implements SpectrumView {
+
+	private int cores;
+	private int slots;
+	private int words;
+	private long lastWordMask;
+	private long[] reserved;
+
+	/**
+	 * Creates a new SpectrumBitmap with every slot free.
+	 *
+	 * @param cores
+	 *            number of cores
+	 * @param slots
+	 *            number of slots per core
+	 */
+	public SpectrumBitmap(int cores, int slots) {
+		if (cores < 1 || slots < 1) {
+			throw (new IllegalArgumentException());
+		}
+		this.cores = cores;
+		this.slots = slots;
+		this.words = (slots + 63) >>> 6;
+		this.lastWordMask = -1L >>> (64 * words - slots);
+		this.reserved = new long[cores * words];
+	}
+
+	/**
+	 * Creates a new SpectrumBitmap with the same occupancy of another one.
+	 *
+	 * @param bitmap
+	 *            the bitmap that will be copied into the new one
+	 */
+	public SpectrumBitmap(SpectrumBitmap bitmap) {
+		this.cores = bitmap.cores;
+		this.slots = bitmap.slots;
+		this.words = bitmap.words;
+		this.lastWordMask = bitmap.lastWordMask;
+		this.reserved = bitmap.reserved.clone();
+	}
+
+	public int getCores() {
+		return cores;
+	}
+
+	public int getSlots() {
+		return slots;
+	}
+
+	public int getWordsPerCore() {
+		return words;
+	}
+
+	public boolean isFree(int core, int slot) {
+		return (reserved[core * words + (slot >>> 6)] & (1L << slot)) == 0;
+	}
+
+	public long getFreeWord(int core, int word) {
+		long free = ~reserved[core * words + word];
+		if (word == words - 1) {
+			free &= lastWordMask;
+		}
+		return free;
+	}
+
+	/**
+	 * Retrieves 64 slots of a core as a word, where each set bit is a reserved
+	 * slot.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param word
+	 *            index of the word
+	 * @return the word of reserved slots
+	 */
+	public long getReservedWord(int core, int word) {
+		return reserved[core * words + word];
+	}
+
+	/**
+	 * Says whether a slot is reserved.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param slot
+	 *            index of the slot
+	 * @return true if the slot is reserved
+	 */
+	public boolean isReserved(int core, int slot) {
+		return (reserved[core * words + (slot >>> 6)] & (1L << slot)) != 0;
+	}
+
+	/**
+	 * Reserves a single slot.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param slot
+	 *            index of the slot
+	 */
+	public void reserve(int core, int slot) {
+		checkRange(core, slot, 1);
+		reserved[core * words + (slot >>> 6)] |= 1L << slot;
+	}
+
+	/**
+	 * Releases a single slot.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param slot
+	 *            index of the slot
+	 */
+	public void release(int core, int slot) {
+		checkRange(core, slot, 1);
+		reserved[core * words + (slot >>> 6)] &= ~(1L << slot);
+	}
+
+	/**
+	 * Reserves a set of contiguous slots in a core.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param first
+	 *            index of the first slot
+	 * @param count
+	 *            number of slots
+	 */
+	public void reserveRange(int core, int first, int count) {
+		checkRange(core, first, count);
+		int last = first + count - 1;
+		int base = core * words;
+		for (int w = first >>> 6; w <= last >>> 6; w++) {
+			reserved[base + w] |= rangeMask(w, first, last);
+		}
+	}
+
+	/**
+	 * Releases a set of contiguous slots in a core.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param first
+	 *            index of the first slot
+	 * @param count
+	 *            number of slots
+	 */
+	public void releaseRange(int core, int first, int count) {
+		checkRange(core, first, count);
+		int last = first + count - 1;
+		int base = core * words;
+		for (int w = first >>> 6; w <= last >>> 6; w++) {
+			reserved[base + w] &= ~rangeMask(w, first, last);
+		}
+	}
+
+	/**
+	 * Says whether a set of contiguous slots in a core is entirely free.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param first
+	 *            index of the first slot
+	 * @param count
+	 *            number of slots
+	 * @return true if all the slots are free
+	 */
+	public boolean isRangeFree(int core, int first, int count) {
+		checkRange(core, first, count);
+		int last = first + count - 1;
+		int base = core * words;
+		for (int w = first >>> 6; w <= last >>> 6; w++) {
+			if ((reserved[base + w] & rangeMask(w, first, last)) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the first reserved slot of a core at or after a given slot.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param from
+	 *            index of the first slot to look at
+	 * @return the index of the reserved slot, or -1 if there is none
+	 */
+	public int nextReserved(int core, int from) {
+		if (from < 0) {
+			from = 0;
+		}
+		if (from >= slots) {
+			return -1;
+		}
+		int base = core * words;
+		int w = from >>> 6;
+		long word = reserved[base + w] & (-1L << from);
+		while (word == 0) {
+			if (++w == words) {
+				return -1;
+			}
+			word = reserved[base + w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * Finds the first free slot of a core at or after a given slot.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param from
+	 *            index of the first slot to look at
+	 * @return the index of the free slot, or -1 if there is none
+	 */
+	public int nextFree(int core, int from) {
+		if (from < 0) {
+			from = 0;
+		}
+		if (from >= slots) {
+			return -1;
+		}
+		int base = core * words;
+		int w = from >>> 6;
+		long word = ~reserved[base + w] & (-1L << from);
+		while (true) {
+			if (w == words - 1) {
+				word &= lastWordMask;
+			}
+			if (word != 0) {
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			}
+			if (++w == words) {
+				return -1;
+			}
+			word = ~reserved[base + w];
+		}
+	}
+
+	/**
+	 * Finds the last reserved slot of a core at or before a given slot.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @param from
+	 *            index of the first slot to look at
+	 * @return the index of the reserved slot, or -1 if there is none
+	 */
+	public int previousReserved(int core, int from) {
+		if (from < 0) {
+			return -1;
+		}
+		if (from >= slots) {
+			from = slots - 1;
+		}
+		int base = core * words;
+		int w = from >>> 6;
+		long word = reserved[base + w] & (-1L >>> (63 - (from & 63)));
+		while (word == 0) {
+			if (--w < 0) {
+				return -1;
+			}
+			word = reserved[base + w];
+		}
+		return (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+	}
+
+	/**
+	 * Counts the reserved slots of a core.
+	 *
+	 * @param core
+	 *            index of the core
+	 * @return the number of reserved slots
+	 */
+	public int countReserved(int core) {
+		int count = 0;
+		int base = core * words;
+		for (int w = 0; w < words; w++) {
+			count += Long.bitCount(reserved[base + w]);
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the reserved slots of all cores.
+	 *
+	 * @return the number of reserved slots
+	 */
+	public int countReserved() {
+		int count = 0;
+		for (int i = 0; i < reserved.length; i++) {
+			count += Long.bitCount(reserved[i]);
+		}
+		return count;
+	}
+
+	/**
+	 * Releases every slot.
+	 */
+	public void clear() {
+		for (int i = 0; i < reserved.length; i++) {
+			reserved[i] = 0;
+		}
+	}
+
+	/**
+	 * Bits of the word w that fall between the slots first and last.
+	 */
+	private static long rangeMask(int w, int first, int last) {
+		int lo = Math.max(first - (w << 6), 0);
+		int hi = Math.min(last - (w << 6), 63);
+		return (-1L >>> (63 - hi)) & (-1L << lo);
+	}
+
+	private void checkRange(int core, int first, int count) {
+		if (core < 0 || core >= cores || first < 0 || count < 1 || first + count > slots) {
+			throw (new IllegalArgumentException());
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package flexgridsim.util;
+
+/**
+ * Read-only view of the spectrum of a fiber link. The spectrum is organized as
+ * a cores x slots grid, and each core is exposed as a sequence of 64-bit words
+ * so that algorithms can process 64 slots at a time without copying the
+ * underlying occupancy.
+ *
+ * @author pedrom
+ */
+public interface SpectrumView {
+
+	/**
+	 * Gets the number of cores.
+	 *
+	 * @return the number of cores
+	 */
+	public int getCores();
+
+	/**
+	 * Gets the number of slots per core.
+	 *
+	 * @return the number of slots
+	 */
+	public int getSlots();
+
+	/**
+	 * Gets the number of 64-bit words used to represent each core.
+	 *
+	 * @return the number of words per core
+	 */
+	public int getWordsPerCore();
+
+	/**
+	 * Says whether a slot is free.
+	 *
+	 * @param core index of the core
+	 * @param slot index of the slot
+	 * @return true if the slot is free, false if it is reserved
+	 */
+	public boolean isFree(int core, int slot);
+
+	/**
+	 * Retrieves 64 slots of a core as a word, where each set bit is a free slot.
+	 * Bit i of word w represents slot w*64+i; bits beyond the last slot are
+	 * always zero.
+	 *
+	 * @param core index of the core
+	 * @param word index of the word
+	 * @return the word of free slots
+	 */
+	public long getFreeWord(int core, int word);
+
+}
@@ -4,18 +4,27 @@
  */
 package flexgridsim.util;
 
+import java.util.Arrays;
+
 /**
  * A weighted graph associates a label (weight) with every edge in the graph. If
  * a pair of nodes has weight equal to zero, it means the edge between them
  * doesn't exist.
  * 
+ * Each node keeps only the edges that leave it, sorted by target, so memory
+ * grows with the number of edges and neighbors() takes time proportional to
+ * the degree of the node.
+ * 
  * @author andred, pedrom
  */
 public class WeightedGraph {
 	protected int numNodes;
-	protected double[][] edges; // adjacency matrix
 	protected boolean[] visited;
-	protected boolean[][] edgeRemoved;
+	private int numEdges;
+	private int[] degree;
+	private int[][] targets;
+	private double[][] weights;
+	private int[][] neighbors;
 
 	/**
 	 * Creates a new WeightedGraph object with no edges,
@@ -24,10 +33,12 @@ public class WeightedGraph {
 	 *            number of nodes the new graph will have
 	 */
 	public WeightedGraph(int n) {
-		edges = new double[n][n];
-		edgeRemoved = new boolean[n][n];
-		visited = new boolean[n];
 		numNodes = n;
+		visited = new boolean[n];
+		degree = new int[n];
+		targets = new int[n][0];
+		weights = new double[n][0];
+		neighbors = new int[n][];
 	}
 
 	/**
@@ -38,20 +49,12 @@ public class WeightedGraph {
 	 *            the graph that will be copied into the new one
 	 */
 	public WeightedGraph(WeightedGraph g) {
-		numNodes = g.numNodes;
-		edges = new double[numNodes][numNodes];
+		this(g.numNodes);
+		numEdges = g.numEdges;
 		for (int i = 0; i < numNodes; i++) {
-			visited[i] = false;
-		}
-		for (int i = 0; i < numNodes; i++) {
-			for (int j = 0; j < numNodes; j++) {
-				edges[i][j] = g.getWeight(i, j);
-			}
-		}
-		for (int i = 0; i < numNodes; i++) {
-			for (int j = 0; j < numNodes; j++) {
-				edgeRemoved[i][j] = false;
-			}
+			degree[i] = g.degree[i];
+			targets[i] = g.targets[i].clone();
+			weights[i] = g.weights[i].clone();
 		}
 	}
 
@@ -79,7 +82,7 @@ public class WeightedGraph {
 	 * @return the num edges
 	 */
 	public int getNumEdges() {
-		return edges.length;
+		return numEdges;
 	}
 	/**
 	 * Creates a new edge within the graph, which requires its two vertexes and
@@ -93,7 +96,44 @@ public class WeightedGraph {
 	 *            the value of the edge's weight
 	 */
 	public void addEdge(int source, int target, double w) {
-		edges[source][target] = w;
+		int i = find(source, target);
+		if (i >= 0) {
+			if (w > 0) {
+				weights[source][i] = w;
+				return;
+			}
+			// A weight of zero removes the edge
+			int tail = degree[source] - i - 1;
+			System.arraycopy(targets[source], i + 1, targets[source], i, tail);
+			System.arraycopy(weights[source], i + 1, weights[source], i, tail);
+			degree[source]--;
+			numEdges--;
+		} else if (w > 0) {
+			if (degree[source] == targets[source].length) {
+				int capacity = Math.max(4, 2 * degree[source]);
+				targets[source] = Arrays.copyOf(targets[source], capacity);
+				weights[source] = Arrays.copyOf(weights[source], capacity);
+			}
+			i = -i - 1;
+			int tail = degree[source] - i;
+			System.arraycopy(targets[source], i, targets[source], i + 1, tail);
+			System.arraycopy(weights[source], i, weights[source], i + 1, tail);
+			targets[source][i] = target;
+			weights[source][i] = w;
+			degree[source]++;
+			numEdges++;
+		} else {
+			return;
+		}
+		neighbors[source] = null;
+	}
+
+	/**
+	 * Finds the position of an edge among the edges of its source, or
+	 * -(insertion point) - 1 if it does not exist.
+	 */
+	private int find(int source, int target) {
+		return Arrays.binarySearch(targets[source], 0, degree[source], target);
 	}
 
 
@@ -108,32 +148,25 @@ public class WeightedGraph {
 	 * @return the value of the edge's weight
 	 */
 	public double getWeight(int source, int target) {
-		return edges[source][target];
+		int i = find(source, target);
+		return i >= 0 ? weights[source][i] : 0;
 	}
 
 
 	/**
-	 * Retrieves the neighbors of a given vertex.
+	 * Retrieves the neighbors of a given vertex, in increasing order. The
+	 * array is kept until the edges of the vertex change, so it must not be
+	 * changed.
 	 * 
 	 * @param vertex
-	 *            index of the vertex within the matrix of edges
+	 *            index of the vertex
 	 * @return list with indexes of the vertex's neighbors
 	 */
 	public int[] neighbors(int vertex) {
-		int count = 0;
-		for (int i = 0; i < edges[vertex].length; i++) {
-			if (edges[vertex][i] > 0) {
-				count++;
-			}
-		}
-		final int[] answer = new int[count];
-		count = 0;
-		for (int i = 0; i < edges[vertex].length; i++) {
-			if (edges[vertex][i] > 0) {
-				answer[count++] = i;
-			}
+		if (neighbors[vertex] == null) {
+			neighbors[vertex] = Arrays.copyOf(targets[vertex], degree[vertex]);
 		}
-		return answer;
+		return neighbors[vertex];
 	}
 
 	/**
@@ -166,14 +199,14 @@ public class WeightedGraph {
 	}
 	
 	/**
-	 * Checks if is edge removed.
+	 * Checks if is edge removed, i.e., if it is not in the graph.
 	 *
 	 * @param src the src
 	 * @param dst the dst
 	 * @return true, if is edge removed
 	 */
 	public boolean isEdgeRemoved(int src, int dst){
-		return edgeRemoved[src][dst];
+		return find(src, dst) < 0;
 	}
 	/**
 	 * Prints all information related to the weighted graph. For each vertex,
@@ -184,13 +217,11 @@ public class WeightedGraph {
 	@Override
 	public String toString() {
 		String s = "";
-		for (int j = 0; j < edges.length; j++) {
+		for (int j = 0; j < numNodes; j++) {
 			s += Integer.toString(j) + ": ";
-			for (int i = 0; i < edges[j].length; i++) {
-				if (edges[j][i] > 0) {
-					s += Integer.toString(i) + ":"
-							+ Double.toString(edges[j][i]) + " ";
-				}
+			for (int i = 0; i < degree[j]; i++) {
+				s += Integer.toString(targets[j][i]) + ":"
+						+ Double.toString(weights[j][i]) + " ";
 			}
 			s += "\n";
 		}
@@ -0,0 +1,291 @@
+package flexgridsim.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+
+import flexgridsim.PhysicalTopology;
+
+/**
+ * Yen's algorithm for the k shortest loopless paths between two nodes.
+ *
+ * The graph is kept in compressed sparse row form, and paths are kept as
+ * arrays of nodes with double-precision costs. Each spur path is found by a
+ * HeapDijkstra workspace that stops at the destination, and the candidate
+ * paths are kept in a binary heap ordered by cost, so the next
+ * shortest path is taken without scanning the candidates. An object holds its
+ * own work arrays and must not be shared between threads.
+ *
+ * @author pedrom
+ */
+public class YenKShortestPaths {
+
+	private int nodes;
+	private CsrGraph graph;
+
+	private HeapDijkstra dijkstra;
+	private boolean[] blockedNode;
+	private boolean[] blockedEdge;
+	private int[] blockedEdges;
+	private double[] costs;
+
+	/**
+	 * Creates a new YenKShortestPaths over a weighted graph. Only paths as
+	 * sequences of nodes can be retrieved.
+	 *
+	 * @param graph
+	 *            the weighted graph
+	 */
+	public YenKShortestPaths(WeightedGraph graph) {
+		this(new CsrGraph(graph));
+	}
+
+	/**
+	 * Creates a new YenKShortestPaths over the links of a physical topology,
+	 * weighted by the link weights. Paths can be retrieved both as sequences
+	 * of nodes and as sequences of link ids.
+	 *
+	 * @param pt
+	 *            the physical topology
+	 */
+	public YenKShortestPaths(PhysicalTopology pt) {
+		this(pt.getGraph());
+	}
+
+	/**
+	 * Creates a new YenKShortestPaths over a sparse graph. Paths can be
+	 * retrieved as sequences of link ids only if the graph has them.
+	 *
+	 * @param graph
+	 *            the graph
+	 */
+	public YenKShortestPaths(CsrGraph graph) {
+		this.graph = graph;
+		nodes = graph.getNumNodes();
+		int edges = graph.getNumEdges();
+		dijkstra = new HeapDijkstra(nodes);
+		blockedNode = new boolean[nodes];
+		blockedEdge = new boolean[edges];
+		blockedEdges = new int[edges];
+		costs = new double[0];
+	}
+
+	/**
+	 * Finds the k shortest loopless paths between two nodes.
+	 *
+	 * @param src
+	 *            the source node
+	 * @param dst
+	 *            the destination node
+	 * @param K
+	 *            the maximum number of paths
+	 * @return the paths, each one given by its nodes from src to dst, from the
+	 *         shortest to the longest; if there are fewer than K paths, only
+	 *         the existing ones are returned
+	 */
+	public int[][] getShortestPaths(int src, int dst, int K) {
+		Path[] paths = search(src, dst, K);
+		int[][] result = new int[paths.length][];
+		for (int i = 0; i < paths.length; i++) {
+			result[i] = paths[i].nodes;
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the k shortest loopless paths between two nodes, given by the ids
+	 * of their links.
+	 *
+	 * @param src
+	 *            the source node
+	 * @param dst
+	 *            the destination node
+	 * @param K
+	 *            the maximum number of paths
+	 * @return the paths, each one given by the ids of its links, from the
+	 *         shortest to the longest
+	 */
+	public int[][] getShortestLinkPaths(int src, int dst, int K) {
+		if (!graph.hasLinks()) {
+			throw (new IllegalStateException("Link ids are only known when created from a PhysicalTopology"));
+		}
+		return toLinks(getShortestPaths(src, dst, K));
+	}
+
+	/**
+	 * Translates paths given by their nodes into paths given by their link
+	 * ids.
+	 *
+	 * @param nodePaths
+	 *            the paths, as returned by getShortestPaths()
+	 * @return the same paths, as sequences of link ids
+	 */
+	public int[][] toLinks(int[][] nodePaths) {
+		if (!graph.hasLinks()) {
+			throw (new IllegalStateException("Link ids are only known when created from a PhysicalTopology"));
+		}
+		int[][] result = new int[nodePaths.length][];
+		for (int i = 0; i < nodePaths.length; i++) {
+			result[i] = new int[nodePaths[i].length - 1];
+			for (int j = 0; j < result[i].length; j++) {
+				result[i][j] = graph.getLink(edge(nodePaths[i][j], nodePaths[i][j + 1]));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Retrieves the costs of the paths found by the last search.
+	 *
+	 * @return the cost of each path, in the same order they were returned
+	 */
+	public double[] getCosts() {
+		return costs;
+	}
+
+	private Path[] search(int src, int dst, int K) {
+		if (src == dst || K < 1 || !shortestPath(src, dst)) {
+			costs = new double[0];
+			return new Path[0];
+		}
+		Path[] found = new Path[K];
+		int count = 0;
+		found[count++] = buildPath(null, 0, 0, src, dst);
+		PriorityQueue<Path> candidates = new PriorityQueue<Path>();
+		HashSet<Path> seen = new HashSet<Path>();
+		seen.add(found[0]);
+		int sequence = 0;
+		while (count < K) {
+			Path previous = found[count - 1];
+			double rootCost = 0;
+			for (int i = 0; i < previous.nodes.length - 1; i++) {
+				int spur = previous.nodes[i];
+				// Remove the next hop of every path that shares this root
+				int blocked = 0;
+				for (int p = 0; p < count; p++) {
+					int[] other = found[p].nodes;
+					if (other.length > i + 1 && sameRoot(other, previous.nodes, i)) {
+						int e = edge(spur, other[i + 1]);
+						if (!blockedEdge[e]) {
+							blockedEdge[e] = true;
+							blockedEdges[blocked++] = e;
+						}
+					}
+				}
+				// Remove the nodes of the root, so the spur path is loopless
+				for (int j = 0; j < i; j++) {
+					blockedNode[previous.nodes[j]] = true;
+				}
+				if (shortestPath(spur, dst)) {
+					Path candidate = buildPath(previous.nodes, i, rootCost, spur, dst);
+					if (seen.add(candidate)) {
+						candidate.sequence = sequence++;
+						candidates.add(candidate);
+					}
+				}
+				for (int j = 0; j < i; j++) {
+					blockedNode[previous.nodes[j]] = false;
+				}
+				for (int j = 0; j < blocked; j++) {
+					blockedEdge[blockedEdges[j]] = false;
+				}
+				rootCost += graph.getWeight(edge(spur, previous.nodes[i + 1]));
+			}
+			if (candidates.isEmpty()) {
+				break;
+			}
+			found[count++] = candidates.poll();
+		}
+		costs = new double[count];
+		for (int i = 0; i < count; i++) {
+			costs[i] = found[i].cost;
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+	/**
+	 * Says whether two paths start with the same i+1 nodes.
+	 */
+	private static boolean sameRoot(int[] a, int[] b, int i) {
+		for (int j = 0; j <= i; j++) {
+			if (a[j] != b[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Joins the first i nodes of a root path with the path from spur to dst
+	 * found by the last call to shortestPath().
+	 */
+	private Path buildPath(int[] root, int i, double rootCost, int spur, int dst) {
+		int hops = 0;
+		for (int v = dst; v != spur; v = dijkstra.getPredecessor(v)) {
+			hops++;
+		}
+		int[] path = new int[i + hops + 1];
+		for (int j = 0; j < i; j++) {
+			path[j] = root[j];
+		}
+		int j = path.length - 1;
+		for (int v = dst; v != spur; v = dijkstra.getPredecessor(v)) {
+			path[j--] = v;
+		}
+		path[j] = spur;
+		return new Path(path, rootCost + dijkstra.getDistance(dst));
+	}
+
+	/**
+	 * Index of the edge from u to v in the graph.
+	 */
+	private int edge(int u, int v) {
+		int e = graph.findEdge(u, v);
+		if (e < 0) {
+			throw (new IllegalArgumentException("No edge from " + u + " to " + v));
+		}
+		return e;
+	}
+
+	/**
+	 * Dijkstra's algorithm from src until dst is settled, skipping blocked
+	 * nodes and edges.
+	 *
+	 * @return true if dst can be reached from src
+	 */
+	private boolean shortestPath(int src, int dst) {
+		return dijkstra.search(graph, src, dst, blockedNode, blockedEdge);
+	}
+
+	/**
+	 * A path found by the search, ordered by cost and then by the order in
+	 * which it was found.
+	 */
+	private static class Path implements Comparable<Path> {
+		int[] nodes;
+		double cost;
+		int sequence;
+
+		Path(int[] nodes, double cost) {
+			this.nodes = nodes;
+			this.cost = cost;
+		}
+
+		public int compareTo(Path p) {
+			if (cost != p.cost) {
+				return cost < p.cost ? -1 : 1;
+			}
+			return sequence < p.sequence ? -1 : (sequence == p.sequence ? 0 : 1);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Path && Arrays.equals(nodes, ((Path) o).nodes);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(nodes);
+		}
+	}
+}